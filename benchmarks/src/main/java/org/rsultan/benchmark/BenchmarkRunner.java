@@ -0,0 +1,21 @@
+package org.rsultan.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the given JMH command line, the allocation rate of each one is
+ * always reported next to its throughput.
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+    var options = new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,77 @@
+package org.rsultan.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.OpenCVFrameConverter.ToMat;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rsultan.video.BufferPool;
+import org.rsultan.video.BufferPool.Shape;
+
+/**
+ * The conversions between the grabbed frames and the mats the stages work on, as done by
+ * {@code DetectionStream} for every grabbed frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class ConversionBenchmark {
+
+  @Param({"HD", "FULL_HD", "UHD"})
+  private Resolution resolution;
+
+  private final ToMat grabbedToMat = new ToMat();
+  private final ToMat pooledToFrame = new ToMat();
+  private final BufferPool bufferPool = new BufferPool(2);
+  private Mat source;
+  private Frame grabbed;
+
+  @Setup
+  public void setUp() {
+    source = Fixtures.frame(resolution);
+    grabbed = new ToMat().convert(source);
+  }
+
+  @Benchmark
+  public Mat frameToMat() {
+    return grabbedToMat.convert(grabbed);
+  }
+
+  @Benchmark
+  public Frame matToFrame() {
+    return pooledToFrame.convert(source);
+  }
+
+  /**
+   * Copies the grabbed pixels into a pooled mat wrapped by a new frame, then gives the mat back.
+   */
+  @Benchmark
+  public Frame copyToPooled() {
+    var mat = grabbedToMat.convert(grabbed);
+    var pooled = bufferPool.acquire(Shape.of(mat.rows(), mat.cols(), mat.type()));
+    mat.copyTo(pooled);
+    var frame = pooledToFrame.convert(pooled);
+    frame.timestamp = grabbed.timestamp;
+    bufferPool.release(pooled);
+    return frame;
+  }
+
+  @TearDown
+  public void tearDown() {
+    source.close();
+  }
+}
@@ -0,0 +1,56 @@
+package org.rsultan.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rsultan.utils.DetectionUtils;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Annotation of a frame with its boxes and labels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class DrawBenchmark {
+
+  @Param({"HD", "FULL_HD", "UHD"})
+  private Resolution resolution;
+
+  @Param({"1", "10", "100"})
+  private int detections;
+
+  private Mat frame;
+  private List<DetectionResult> results;
+
+  @Setup
+  public void setUp() {
+    frame = Fixtures.frame(resolution);
+    results = Fixtures.detections(detections, resolution);
+  }
+
+  @Benchmark
+  public Mat draw() {
+    return DetectionUtils.draw(results, frame);
+  }
+
+  @TearDown
+  public void tearDown() {
+    frame.close();
+  }
+}
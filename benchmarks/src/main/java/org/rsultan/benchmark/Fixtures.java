@@ -0,0 +1,183 @@
+package org.rsultan.benchmark;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_32F;
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC3;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.rsultan.yolo.net.config.OutputLayout;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Builds the inputs of the benchmarks from a fixed seed, so that every run measures the same
+ * work.
+ * <p>
+ * Net outputs are shaped as the ones of a YOLOv4 darknet model at 416x416 and of exported YOLOv5
+ * and YOLOv8 models at 640x640, with 80 classes. Their scores are low noise apart from the given
+ * number of objects, each one reported by a few neighbouring boxes for the suppression to merge.
+ */
+public final class Fixtures {
+
+  public static final long SEED = 42;
+  public static final List<String> NAMES = IntStream.range(0, 80)
+      .mapToObj(index -> "class-" + index).toList();
+
+  private static final int BOXES_PER_OBJECT = 4;
+  private static final int DARKNET_INPUT = 416;
+  private static final int EXPORTED_INPUT = 640;
+  private static final int[] STRIDES = {8, 16, 32};
+  private static final int ANCHORS = 3;
+  private static final float NOISE = 0.01f;
+
+  private Fixtures() {
+  }
+
+  /**
+   * @return a BGR frame of random pixels
+   */
+  public static Mat frame(Resolution resolution) {
+    var frame = new Mat(resolution.height(), resolution.width(), CV_8UC3);
+    var pixels = new byte[resolution.width() * resolution.height() * 3];
+    new Random(SEED).nextBytes(pixels);
+    new BytePointer(frame.data()).put(pixels);
+    return frame;
+  }
+
+  /**
+   * @return detections of random classes and boxes spread over the frame
+   */
+  public static List<DetectionResult> detections(int count, Resolution resolution) {
+    var random = new Random(SEED);
+    var detections = new ArrayList<DetectionResult>(count);
+    for (int i = 0; i < count; i++) {
+      int classId = random.nextInt(NAMES.size());
+      int width = (int) (resolution.width() * (0.05 + 0.2 * random.nextDouble()));
+      int height = (int) (resolution.height() * (0.05 + 0.2 * random.nextDouble()));
+      detections.add(new DetectionResult(classId, NAMES.get(classId),
+          new Scalar(random.nextInt(256), random.nextInt(256), random.nextInt(256), 0),
+          0.3f + 0.7f * random.nextFloat(), random.nextInt(resolution.width() - width),
+          random.nextInt(resolution.height() - height), width, height));
+    }
+    return detections;
+  }
+
+  /**
+   * @return the width and height of the net input the outputs of the layout come from
+   */
+  public static int inputSize(OutputLayout layout) {
+    return layout == OutputLayout.DARKNET ? DARKNET_INPUT : EXPORTED_INPUT;
+  }
+
+  /**
+   * @return the output heads a net of the given layout gives for an image holding the objects
+   */
+  public static List<Mat> yoloOutputs(OutputLayout layout, int objects) {
+    var random = new Random(SEED);
+    int input = inputSize(layout);
+    int boxes = 0;
+    var headRows = new int[STRIDES.length];
+    for (int i = 0; i < STRIDES.length; i++) {
+      int cells = (input / STRIDES[i]) * (input / STRIDES[i]);
+      headRows[i] = layout == OutputLayout.YOLOV8 ? cells : cells * ANCHORS;
+      boxes += headRows[i];
+    }
+    return switch (layout) {
+      // Darknet has a head per stride, boxes and scores are relative to the input
+      case DARKNET -> {
+        var heads = new ArrayList<Mat>();
+        for (int rows : headRows) {
+          heads.add(rowOutput(random, new int[]{rows, NAMES.size() + 5}, rows, 1,
+              objects * rows / boxes, true));
+        }
+        yield heads;
+      }
+      case YOLOV5 -> List.of(rowOutput(random, new int[]{1, boxes, NAMES.size() + 5}, boxes,
+          input, objects, false));
+      case YOLOV8 -> List.of(columnOutput(random, boxes, input, objects));
+    };
+  }
+
+  /**
+   * One row per box: center, size, objectness then class scores.
+   */
+  private static Mat rowOutput(Random random, int[] shape, int rows, int scale, int objects,
+      boolean scaledScores) {
+    int cols = NAMES.size() + 5;
+    var values = new float[rows * cols];
+    for (int row = 0; row < rows; row++) {
+      box(random, values, row * cols, 1, scale);
+      for (int col = 4; col < cols; col++) {
+        values[row * cols + col] = NOISE * random.nextFloat();
+      }
+    }
+    for (int object = 0; object < objects; object++) {
+      int first = random.nextInt(rows - BOXES_PER_OBJECT);
+      int classId = random.nextInt(NAMES.size());
+      float objectness = 0.6f + 0.35f * random.nextFloat();
+      float score = 0.5f + 0.45f * random.nextFloat();
+      box(random, values, first * cols, 1, scale);
+      for (int row = first; row < first + BOXES_PER_OBJECT; row++) {
+        jitter(random, values, first * cols, row * cols, 1);
+        values[row * cols + 4] = objectness;
+        values[row * cols + 5 + classId] = scaledScores ? objectness * score : score;
+      }
+    }
+    return toMat(shape, values);
+  }
+
+  /**
+   * One column per box: center and size then class scores, without objectness.
+   */
+  private static Mat columnOutput(Random random, int boxes, int scale, int objects) {
+    int rows = NAMES.size() + 4;
+    var values = new float[rows * boxes];
+    for (int col = 0; col < boxes; col++) {
+      box(random, values, col, boxes, scale);
+      for (int row = 4; row < rows; row++) {
+        values[row * boxes + col] = NOISE * random.nextFloat();
+      }
+    }
+    for (int object = 0; object < objects; object++) {
+      int first = random.nextInt(boxes - BOXES_PER_OBJECT);
+      int classId = random.nextInt(NAMES.size());
+      float score = 0.5f + 0.45f * random.nextFloat();
+      box(random, values, first, boxes, scale);
+      for (int col = first; col < first + BOXES_PER_OBJECT; col++) {
+        jitter(random, values, first, col, boxes);
+        values[(4 + classId) * boxes + col] = score;
+      }
+    }
+    return toMat(new int[]{1, rows, boxes}, values);
+  }
+
+  /**
+   * Writes a random center and size, {@code step} apart from each other.
+   */
+  private static void box(Random random, float[] values, int offset, int step, int scale) {
+    values[offset] = scale * random.nextFloat();
+    values[offset + step] = scale * random.nextFloat();
+    values[offset + 2 * step] = scale * (0.02f + 0.2f * random.nextFloat());
+    values[offset + 3 * step] = scale * (0.02f + 0.2f * random.nextFloat());
+  }
+
+  /**
+   * Copies the box at {@code from} to {@code to}, moved and resized by a few percent.
+   */
+  private static void jitter(Random random, float[] values, int from, int to, int step) {
+    for (int i = 0; i < 4; i++) {
+      values[to + i * step] = values[from + i * step] * (0.97f + 0.06f * random.nextFloat());
+    }
+  }
+
+  private static Mat toMat(int[] shape, float[] values) {
+    var mat = new Mat(shape, CV_32F);
+    new FloatPointer(mat.data()).put(values);
+    return mat;
+  }
+}
@@ -0,0 +1,26 @@
+package org.rsultan.benchmark;
+
+/**
+ * The frame sizes the benchmarks run at.
+ */
+public enum Resolution {
+  HD(1280, 720),
+  FULL_HD(1920, 1080),
+  UHD(3840, 2160);
+
+  private final int width;
+  private final int height;
+
+  Resolution(int width, int height) {
+    this.width = width;
+    this.height = height;
+  }
+
+  public int width() {
+    return width;
+  }
+
+  public int height() {
+    return height;
+  }
+}
@@ -0,0 +1,79 @@
+package org.rsultan.yolo.net;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rsultan.benchmark.Fixtures;
+import org.rsultan.benchmark.Resolution;
+import org.rsultan.yolo.net.config.NmsConfig;
+import org.rsultan.yolo.net.config.OutputLayout;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Turns the outputs of a forward pass into detections: scan, suppression and results.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class DecodeBenchmark {
+
+  @Param({"DARKNET", "YOLOV5", "YOLOV8"})
+  private OutputLayout layout;
+
+  @Param({"SCALAR", "VECTOR", "PARALLEL"})
+  private DecodeMode decodeMode;
+
+  @Param({"0", "10", "100"})
+  private int objects;
+
+  private final MatVector outs = new MatVector();
+  private List<Mat> heads;
+  private Mat[] views;
+  private Letterbox letterbox;
+  private ResultExtractor extractor;
+
+  @Setup
+  public void setUp() {
+    heads = Fixtures.yoloOutputs(layout, objects);
+    views = new Mat[heads.size()];
+    int input = Fixtures.inputSize(layout);
+    letterbox = Letterbox.fit(Resolution.FULL_HD.width(), Resolution.FULL_HD.height(), input,
+        input);
+    extractor = new ResultExtractor(0.5f, new NmsConfig(0.4f, true, 0, false, 0.5f),
+        Fixtures.NAMES, decodeMode, layout);
+  }
+
+  /**
+   * The extractor releases the outputs it scanned, it is given new headers over the same data.
+   */
+  @Benchmark
+  public List<DetectionResult> decode() {
+    for (int i = 0; i < views.length; i++) {
+      views[i] = new Mat(heads.get(i));
+    }
+    outs.put(views);
+    return extractor.getDetectionResults(letterbox, outs);
+  }
+
+  @TearDown
+  public void tearDown() {
+    heads.forEach(Mat::close);
+    outs.close();
+  }
+}
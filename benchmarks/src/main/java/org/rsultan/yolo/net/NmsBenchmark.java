@@ -0,0 +1,81 @@
+package org.rsultan.yolo.net;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rsultan.benchmark.Fixtures;
+import org.rsultan.benchmark.Resolution;
+import org.rsultan.yolo.net.config.NmsConfig;
+
+/**
+ * Suppression of the candidates scanned out of the net outputs, from the few of an empty scene to
+ * the thousands of a crowd or of a low confidence threshold.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class NmsBenchmark {
+
+  private static final int BOXES_PER_OBJECT = 8;
+  private static final int CLASSES = 5;
+
+  @Param({"100", "1000", "10000"})
+  private int candidates;
+
+  @Param({"true", "false"})
+  private boolean classAware;
+
+  @Param({"false", "true"})
+  private boolean soft;
+
+  private final Candidates scanned = new Candidates();
+  private final Candidates working = new Candidates();
+  private NonMaximumSuppression suppression;
+
+  /**
+   * Candidates come by clusters of overlapping boxes around each object, as a net reports them.
+   */
+  @Setup
+  public void setUp() {
+    var random = new Random(Fixtures.SEED);
+    var frame = Resolution.FULL_HD;
+    for (int i = 0; i < candidates; i += BOXES_PER_OBJECT) {
+      int classId = random.nextInt(CLASSES);
+      int width = 20 + random.nextInt(200);
+      int height = 20 + random.nextInt(200);
+      int left = random.nextInt(frame.width() - width);
+      int top = random.nextInt(frame.height() - height);
+      for (int j = i; j < Math.min(candidates, i + BOXES_PER_OBJECT); j++) {
+        scanned.add(classId, 0.3f + 0.7f * random.nextFloat(), left + random.nextInt(9) - 4,
+            top + random.nextInt(9) - 4, width + random.nextInt(9) - 4,
+            height + random.nextInt(9) - 4);
+      }
+    }
+    suppression = new NonMaximumSuppression(new NmsConfig(0.45f, classAware, 0, soft, 0.5f),
+        0.25f);
+  }
+
+  /**
+   * Suppression works in place, every run starts over from a copy of the scanned candidates.
+   */
+  @Benchmark
+  public int suppress() {
+    working.clear();
+    working.addAll(scanned);
+    suppression.suppress(working);
+    return working.keptCount;
+  }
+}
@@ -0,0 +1,65 @@
+package org.rsultan.yolo.net;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rsultan.benchmark.Fixtures;
+import org.rsultan.benchmark.Resolution;
+
+/**
+ * Turns a frame into the input tensor of the net: resize, padding, channel swap and
+ * normalization.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class PreprocessBenchmark {
+
+  @Param({"HD", "FULL_HD", "UHD"})
+  private Resolution resolution;
+
+  @Param({"416", "640"})
+  private int inputSize;
+
+  @Param({"true", "false"})
+  private boolean letterbox;
+
+  private Mat frame;
+  private FloatBuffer tensor;
+  private LetterboxPreprocessor preprocessor;
+
+  @Setup
+  public void setUp() {
+    frame = Fixtures.frame(resolution);
+    preprocessor = new LetterboxPreprocessor(inputSize, inputSize, letterbox);
+    tensor = ByteBuffer.allocateDirect(preprocessor.imageSize() * Float.BYTES)
+        .order(ByteOrder.nativeOrder()).asFloatBuffer();
+  }
+
+  @Benchmark
+  public Letterbox fill() {
+    return preprocessor.fill(frame, tensor, 0);
+  }
+
+  @TearDown
+  public void tearDown() {
+    frame.close();
+  }
+}
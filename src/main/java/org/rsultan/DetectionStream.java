@@ -0,0 +1,213 @@
+package org.rsultan;
+
+import static org.bytedeco.javacv.OpenCVFrameConverter.ToMat;
+import static org.rsultan.video.Constants.INPUT_TYPE;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.bytedeco.javacv.Frame;
+import org.rsultan.exception.VideoEndedException;
+import org.rsultan.metadata.DetectionSink;
+import org.rsultan.pipeline.DropPolicy;
+import org.rsultan.pipeline.Pipeline;
+import org.rsultan.utils.DetectionUtils;
+import org.rsultan.utils.StartupTimer;
+import org.rsultan.video.BufferPool;
+import org.rsultan.video.BufferPool.Shape;
+import org.rsultan.video.MotionConfig;
+import org.rsultan.video.MotionGate;
+import org.rsultan.video.OutputDefinition;
+import org.rsultan.video.StreamDefinition;
+import org.rsultan.video.VideoFrame;
+import org.rsultan.video.diffusion.Diffusion;
+import org.rsultan.video.source.Source;
+import org.rsultan.yolo.net.InferenceScheduler;
+import org.rsultan.yolo.result.DetectionResult;
+import org.rsultan.yolo.track.Tracker;
+import org.rsultan.yolo.track.TrackerConfig;
+
+/**
+ * Grabs, annotates and diffuses a single stream, everything here belongs to that stream only
+ * apart from the nets behind the {@link InferenceScheduler}.
+ * <p>
+ * The stream can be {@link #open()}ed while the nets are still loading, then {@link #run} once
+ * they are.
+ */
+public class DetectionStream {
+
+  private final StreamDefinition definition;
+  private final BufferPool bufferPool;
+  private final int queueCapacity;
+  private final DropPolicy dropPolicy;
+  private final int statsInterval;
+  private final StartupTimer startup;
+  private final MotionConfig motion;
+  private final TrackerConfig tracking;
+  private final DetectionSink sink;
+  private final CompletableFuture<Void> firstFrame = new CompletableFuture<>();
+  private Source input;
+  private Diffusion diffusion;
+  private long grabbedFrames;
+
+  public DetectionStream(StreamDefinition definition, BufferPool bufferPool, int queueCapacity,
+      DropPolicy dropPolicy, int statsInterval, StartupTimer startup, MotionConfig motion,
+      TrackerConfig tracking, DetectionSink sink) {
+    this.definition = definition;
+    this.bufferPool = bufferPool;
+    this.queueCapacity = queueCapacity;
+    this.dropPolicy = dropPolicy;
+    this.statsInterval = statsInterval;
+    this.startup = startup;
+    this.motion = motion;
+    this.tracking = tracking;
+    this.sink = sink;
+  }
+
+  /**
+   * Starts the source and builds the output.
+   */
+  public synchronized DetectionStream open() {
+    if (input == null) {
+      input = Source.get(definition.inputType(), definition.inputProperties());
+      startup.time("source[" + getName() + "]", () -> {
+        try {
+          input.start();
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      });
+      var outputs = definition.outputs().stream().map(output -> {
+        var outputProperties = new HashMap<>(output.properties());
+        outputProperties.put(INPUT_TYPE, input);
+        return new OutputDefinition(output.name(), output.type(), outputProperties);
+      }).toList();
+      diffusion = startup.time("output[" + getName() + "]", () -> Diffusion.get(outputs));
+    }
+    return this;
+  }
+
+  /**
+   * Processes the stream until it ends.
+   *
+   * @param scheduler the detections of the frames, null to diffuse them untouched
+   */
+  public void run(InferenceScheduler scheduler) {
+    open();
+    final MotionGate gate = scheduler == null || motion == null ? null : new MotionGate(motion);
+    final Tracker tracker = scheduler == null || tracking == null ? null : new Tracker(tracking);
+    final ToMat grabbedToMat = new ToMat();
+    final ToMat pooledToFrame = new ToMat();
+    var pipeline = Pipeline.source("grab", () -> input.capture()
+            .map(frame -> copyToPooled(frame, grabbedToMat, pooledToFrame)))
+        .queue(queueCapacity, dropPolicy, this::release)
+        .stage("annotate", videoFrame -> annotate(scheduler, gate, tracker, videoFrame))
+        .queue(queueCapacity, dropPolicy, this::release)
+        .sink("encode", videoFrame -> encode(diffusion, videoFrame))
+        .name(definition.name())
+        .reportEvery(statsInterval, TimeUnit.SECONDS);
+    input.setBacklog(pipeline::backlog);
+    pipeline.monitor(input::toString);
+    pipeline.monitor(diffusion::toString);
+    if (scheduler != null) {
+      pipeline.monitor(scheduler::toString);
+    }
+    if (gate != null) {
+      pipeline.monitor(gate::toString);
+    }
+    if (tracker != null) {
+      pipeline.monitor(tracker::toString);
+    }
+
+    try {
+      pipeline.run();
+    } catch (VideoEndedException vee) {
+      //Do Nothing
+    } catch (Throwable e) {
+      e.printStackTrace();
+    } finally {
+      firstFrame.complete(null);
+      terminate(input, diffusion, scheduler, gate);
+    }
+  }
+
+  /**
+   * @return completed once the first frame is encoded, or the stream ended without any
+   */
+  public CompletableFuture<Void> firstFrame() {
+    return firstFrame;
+  }
+
+  /**
+   * The grabber reuses its frame on every grab, its pixels are copied once into a pooled mat
+   * that the frame handed to the diffusion wraps.
+   */
+  private VideoFrame copyToPooled(Frame grabbed, ToMat grabbedToMat, ToMat pooledToFrame) {
+    var source = grabbedToMat.convert(grabbed);
+    var mat = bufferPool.acquire(Shape.of(source.rows(), source.cols(), source.type()));
+    source.copyTo(mat);
+    var frame = pooledToFrame.convert(mat);
+    frame.timestamp = grabbed.timestamp;
+    return new VideoFrame(frame, mat, grabbedFrames++);
+  }
+
+  private void encode(Diffusion diffusion, VideoFrame videoFrame) {
+    diffusion.show(videoFrame.frame());
+    release(videoFrame);
+    if (!firstFrame.isDone()) {
+      startup.mark("first-frame[" + getName() + "]");
+      firstFrame.complete(null);
+    }
+  }
+
+  private void release(VideoFrame videoFrame) {
+    bufferPool.release(videoFrame.mat());
+  }
+
+  private VideoFrame annotate(InferenceScheduler scheduler, MotionGate gate, Tracker tracker,
+      VideoFrame videoFrame) {
+    if (scheduler == null) {
+      return videoFrame;
+    }
+
+    var detections = predict(scheduler, gate, tracker, videoFrame);
+    if (sink != null) {
+      sink.write(getName(), videoFrame.number(), videoFrame.frame().timestamp, detections);
+    }
+    DetectionUtils.draw(detections, videoFrame.mat());
+    return videoFrame;
+  }
+
+  /**
+   * Frames the gate holds back get the detections of the last inferred one, moved ahead by the
+   * tracker if any.
+   */
+  private static List<DetectionResult> predict(InferenceScheduler scheduler, MotionGate gate,
+      Tracker tracker, VideoFrame videoFrame) {
+    if (gate == null || gate.test(videoFrame.mat())) {
+      scheduler.submit(videoFrame.mat());
+    }
+    return tracker == null ? scheduler.latest() : tracker.track(scheduler.published());
+  }
+
+  private static void terminate(Source source, Diffusion diffusion,
+      InferenceScheduler scheduler, MotionGate gate) {
+    try {
+      source.stop();
+      diffusion.stop();
+      if (scheduler != null) {
+        scheduler.close();
+      }
+      if (gate != null) {
+        gate.close();
+      }
+    } catch (Throwable e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public String getName() {
+    return definition.name();
+  }
+}
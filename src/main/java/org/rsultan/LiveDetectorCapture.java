@@ -1,6 +1,6 @@
 package org.rsultan;
 
-import static org.bytedeco.javacv.OpenCVFrameConverter.*;
+import static org.rsultan.video.Constants.ANALYZE_DURATION;
 import static org.rsultan.video.Constants.BITRATE;
 import static org.rsultan.video.Constants.CODEC;
 import static org.rsultan.video.Constants.CRF;
@@ -12,49 +12,86 @@ import static org.rsultan.video.Constants.FORMAT;
 import static org.rsultan.video.Constants.FRAME_RATE;
 import static org.rsultan.video.Constants.GOP;
 import static org.rsultan.video.Constants.HEIGHT;
+import static org.rsultan.video.Constants.LOWRES;
+import static org.rsultan.video.Constants.LOW_LATENCY;
 import static org.rsultan.video.Constants.PRESET;
-import static org.rsultan.video.Constants.INPUT_TYPE;
+import static org.rsultan.video.Constants.PROBE_SIZE;
+import static org.rsultan.video.Constants.RECONNECT_ATTEMPTS;
+import static org.rsultan.video.Constants.RECONNECT_DELAY;
+import static org.rsultan.video.Constants.RECONNECT_MAX_DELAY;
+import static org.rsultan.video.Constants.QUALITY;
 import static org.rsultan.video.Constants.ADDRESS;
+import static org.rsultan.video.Constants.SKIP_BACKLOG;
+import static org.rsultan.video.Constants.TIMEOUT;
 import static org.rsultan.video.Constants.TUNE;
 import static org.rsultan.video.Constants.WIDTH;
 import static picocli.CommandLine.Help.Visibility.ALWAYS;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.bytedeco.ffmpeg.global.avcodec;
-import org.bytedeco.javacv.Frame;
 import org.rsultan.exception.VideoEndedException;
-import org.rsultan.utils.DetectionUtils;
-import org.rsultan.video.diffusion.Diffusion;
+import org.rsultan.metadata.DetectionSink;
+import org.rsultan.metadata.MetadataFormat;
+import org.rsultan.offline.OfflineDetection;
+import org.rsultan.pipeline.DropPolicy;
+import org.rsultan.store.DetectionStore;
+import org.rsultan.store.QueryCommand;
+import org.rsultan.utils.StartupTimer;
+import org.rsultan.video.BufferPool;
+import org.rsultan.video.MotionConfig;
+import org.rsultan.video.StreamDefinition;
 import org.rsultan.video.diffusion.OutputType;
-import org.rsultan.video.source.Source;
 import org.rsultan.video.source.InputType;
+import org.rsultan.yolo.net.DecodeMode;
+import org.rsultan.yolo.net.InferenceBatcher;
+import org.rsultan.yolo.net.InferenceScheduler;
+import org.rsultan.yolo.net.Predictor;
+import org.rsultan.yolo.net.TiledPredictor;
 import org.rsultan.yolo.net.YoloNet;
+import org.rsultan.yolo.net.YoloNetPool;
 import org.rsultan.yolo.net.config.ModelFormat;
 import org.rsultan.yolo.net.config.NetConfig;
-import org.rsultan.yolo.result.DetectionResult;
+import org.rsultan.yolo.net.config.NmsConfig;
+import org.rsultan.yolo.net.config.OutputLayout;
+import org.rsultan.yolo.net.config.Precision;
+import org.rsultan.yolo.track.TrackerConfig;
 import picocli.CommandLine;
 import picocli.CommandLine.Option;
 
 public class LiveDetectorCapture implements Runnable {
 
-  private static List<DetectionResult> predictions;
-  private static final AtomicInteger index = new AtomicInteger(0);
-  private static final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
-
   /*****************************************/
   /***                                   ***/
   /***             YOLO Config           ***/
   /***                                   ***/
   /*****************************************/
   @Option(names = {"--model-format"}, showDefaultValue = ALWAYS, description = {
-      "enables yolo detection on the stream", "default: DARKNET"})
+      "the model files format: DARKNET (config.cfg, weights.weights and names.txt)",
+      "or ONNX (model.onnx and names.txt)"})
   private ModelFormat modelFormat = ModelFormat.DARKNET;
+
+  @Option(names = {"--onnx-layout"}, showDefaultValue = ALWAYS, description = {
+      "the output layout of an ONNX model: YOLOV5 (rows with objectness)",
+      "or YOLOV8 (transposed, no objectness)"})
+  private OutputLayout onnxLayout = OutputLayout.YOLOV8;
+
+  @Option(names = {"--precision"}, showDefaultValue = ALWAYS, description = {
+      "the floating point precision of the forward passes: FP32 or FP16",
+      "FP16 needs a CPU or a GPU with native half precision support"})
+  private Precision precision = Precision.FP32;
   @Option(names = {"--yolo-enabled"}, showDefaultValue = ALWAYS, description = {
       "enables yolo detection on the stream", "default: false"})
   private boolean yoloEnabled = false;
@@ -66,7 +103,9 @@ public class LiveDetectorCapture implements Runnable {
   @Option(names = {"--yolo-path"}, showDefaultValue = ALWAYS, description = {
       "path to the yolo files",
       "the files within that folder must be named: config.cfg, names.txt, weights.weights",
-      "eg: /path/to/yolov7 is the path that will contain: /path/to/yolov7/config.cfg, /path/to/yolov7/names.txt, /path/to/yolov7/weights.weights",})
+      "eg: /path/to/yolov7 is the path that will contain: /path/to/yolov7/config.cfg, /path/to/yolov7/names.txt, /path/to/yolov7/weights.weights",
+      "with --model-format=ONNX the folder holds model.onnx and names.txt instead, --onnx-layout telling how the outputs are laid out",
+      "eg: /path/to/yolov8n containing /path/to/yolov8n/model.onnx, /path/to/yolov8n/names.txt",})
   private String modelPath =
       System.getProperty("user.dir") + File.separator + "model" + File.separator + "yolov7";
 
@@ -78,6 +117,24 @@ public class LiveDetectorCapture implements Runnable {
       "the NMS (Non-maximum Suppression) threshold", "more info: https://arxiv.org/abs/1705.02950"})
   private float nmsThreshold = 0.4f;
 
+  @Option(names = {"--nms-class-aware"}, negatable = true, defaultValue = "true",
+      showDefaultValue = ALWAYS, description = {
+      "only boxes of the same class suppress each other"})
+  private boolean nmsClassAware = true;
+
+  @Option(names = {"--nms-top-k"}, showDefaultValue = ALWAYS, description = {
+      "the number of best scored boxes kept before suppression, 0 keeps them all"})
+  private int nmsTopK = 0;
+
+  @Option(names = {"--soft-nms"}, showDefaultValue = ALWAYS, description = {
+      "decays the score of overlapping boxes instead of removing them",
+      "more info: https://arxiv.org/abs/1704.04503"})
+  private boolean softNms = false;
+
+  @Option(names = {"--soft-nms-sigma"}, showDefaultValue = ALWAYS, description = {
+      "the gaussian spread of the soft-NMS decay"})
+  private float softNmsSigma = 0.5f;
+
   @Option(names = {"--yolo-width"}, description = {"the yolo image blob width used for detection"})
   private int yoloWidth = 608;
 
@@ -85,6 +142,110 @@ public class LiveDetectorCapture implements Runnable {
       "the yolo image blob height used for detection"})
   private int yoloHeight = 608;
 
+  @Option(names = {"--letterbox"}, negatable = true, defaultValue = "true",
+      showDefaultValue = ALWAYS, description = {
+      "keeps the frame aspect ratio in the yolo image blob and pads the borders,",
+      "--no-letterbox stretches the frame over the blob"})
+  private boolean letterbox = true;
+
+  @Option(names = {"--decode-mode"}, showDefaultValue = ALWAYS, description = {
+      "how the yolo outputs are scanned: SCALAR, VECTOR (objectness first, SIMD class scores)",
+      "or PARALLEL (VECTOR with each output head on its own fork-join task)"})
+  private DecodeMode decodeMode = DecodeMode.VECTOR;
+
+  @Option(names = {"--yolo-instances"}, showDefaultValue = ALWAYS, description = {
+      "the number of yolo nets running forward passes in parallel"})
+  private int yoloInstances = 1;
+
+  @Option(names = {"--opencv-threads"}, showDefaultValue = ALWAYS, description = {
+      "the OpenCV threads of the process, every yolo net forwards on the same ones",
+      "0 uses the available cores divided by the yolo instances",
+      "OpenCV cannot limit the threads of a single net"})
+  private int openCvThreads = 0;
+
+  @Option(names = {"--yolo-share-weights"}, negatable = true, defaultValue = "true",
+      showDefaultValue = ALWAYS, description = {
+      "reads the model files once and builds every yolo instance from memory",
+      "only with several yolo instances, the buffers are dropped once the nets are built"})
+  private boolean shareWeights = true;
+
+  @Option(names = {"--batch-size"}, showDefaultValue = ALWAYS, description = {
+      "the maximum number of frames stacked in a single forward pass, 1 disables batching"})
+  private int batchSize = 1;
+
+  @Option(names = {"--batch-delay"}, showDefaultValue = ALWAYS, description = {
+      "the maximum time in milliseconds a frame waits for its batch to fill up"})
+  private long batchDelay = 10;
+
+  @Option(names = {"--tile-columns"}, showDefaultValue = ALWAYS, description = {
+      "the number of tile columns a frame is cut into for detection, 1x1 disables tiling"})
+  private int tileColumns = 1;
+
+  @Option(names = {"--tile-rows"}, showDefaultValue = ALWAYS, description = {
+      "the number of tile rows a frame is cut into for detection"})
+  private int tileRows = 1;
+
+  @Option(names = {"--tile-overlap"}, showDefaultValue = ALWAYS, description = {
+      "the fraction of a tile shared with its neighbours"})
+  private float tileOverlap = 0.2f;
+
+  @Option(names = {"--tile-full-frame"}, negatable = true, defaultValue = "true",
+      showDefaultValue = ALWAYS, description = {
+      "also detects on the whole frame, for the objects larger than a tile"})
+  private boolean tileFullFrame = true;
+
+  @Option(names = {"--tile-batch"}, showDefaultValue = ALWAYS, description = {
+      "runs the tiles of a frame in one batched forward pass instead of across the instances"})
+  private boolean tileBatch = false;
+
+  @Option(names = {"--motion-gate"}, showDefaultValue = ALWAYS, description = {
+      "only runs detection on frames where something moved since the last inferred frame"})
+  private boolean motionGate = false;
+
+  @Option(names = {"--motion-threshold"}, showDefaultValue = ALWAYS, description = {
+      "the grey level change (0-255) above which a pixel has moved"})
+  private int motionThreshold = 25;
+
+  @Option(names = {"--motion-area"}, showDefaultValue = ALWAYS, description = {
+      "the fraction of moved pixels above which a frame is inferred, lower is more sensitive"})
+  private float motionArea = 0.002f;
+
+  @Option(names = {"--motion-max-gap"}, showDefaultValue = ALWAYS, description = {
+      "the longest time in milliseconds a static scene goes without detection, 0 for no limit"})
+  private long motionMaxGap = 2000;
+
+  @Option(names = {"--motion-width"}, showDefaultValue = ALWAYS, description = {
+      "the width of the grayscale copy of the frame motion is detected on"})
+  private int motionWidth = 160;
+
+  @Option(names = {"--track"}, showDefaultValue = ALWAYS, description = {
+      "follows the detected objects between inferences and gives each one an identifier"})
+  private boolean tracking = false;
+
+  @Option(names = {"--track-iou"}, showDefaultValue = ALWAYS, description = {
+      "the overlap (IoU) above which a detection continues a track"})
+  private float trackIou = 0.3f;
+
+  @Option(names = {"--track-max-misses"}, showDefaultValue = ALWAYS, description = {
+      "the number of inferences a track survives without a matching detection"})
+  private int trackMaxMisses = 3;
+
+  @Option(names = {"--metadata"}, description = {
+      "A file, or a tcp://host:port server, receiving the detections of every frame"})
+  private String metadataAddress;
+
+  @Option(names = {"--metadata-format"}, showDefaultValue = ALWAYS, description = {
+      "How the detections are written: JSON lines or BINARY records"})
+  private MetadataFormat metadataFormat = MetadataFormat.JSON;
+
+  @Option(names = {"--metadata-flush"}, showDefaultValue = ALWAYS, description = {
+      "Interval in milliseconds between two flushes of the metadata file to disk"})
+  private long metadataFlush = 1000;
+
+  @Option(names = {"--store"}, description = {
+      "A directory keeping the detections for later queries, see the query command"})
+  private Path storeDirectory;
+
   /*****************************************/
   /***                                   ***/
   /***        Video Config Input         ***/
@@ -97,9 +258,13 @@ public class LiveDetectorCapture implements Runnable {
   private String inputAddress = "rtmp://localhost:1935/stream/hello";
 
   @Option(names = {"--in-type"}, showDefaultValue = ALWAYS, description = {
-      "The input type of the stream"})
+      "The input type of the stream, a FILE is processed offline as fast as the machine allows"})
   private InputType inputType = InputType.DIRECT;
 
+  @Option(names = {"--offline-workers"}, showDefaultValue = ALWAYS, description = {
+      "The spans of a file input processed at once, 0 to keep every net busy"})
+  private int offlineWorkers = 0;
+
   @Option(names = {"--in-width"}, showDefaultValue = ALWAYS, description = {
       "The input width of the stream"})
   private int inputWidth = 1280;
@@ -136,6 +301,42 @@ public class LiveDetectorCapture implements Runnable {
       "The input frame rate of the stream"})
   private int inputFrameRate = DEFAULT_FRAME_RATE;
 
+  @Option(names = {"--in-skip-backlog"}, showDefaultValue = ALWAYS, description = {
+      "Percentage of a pipeline queue filled above which frames are skipped at decoding, 0 never"})
+  private int inputSkipBacklog = 0;
+
+  @Option(names = {"--in-lowres"}, showDefaultValue = ALWAYS, description = {
+      "Decodes at 1/2^n of the resolution, for the codecs supporting it such as MJPEG"})
+  private int inputLowres = 0;
+
+  @Option(names = {"--in-low-latency"}, description = {
+      "Opens the stream without buffering, with low delay decoding and a short probing"})
+  private boolean inputLowLatency = false;
+
+  @Option(names = {"--in-probe-size"}, showDefaultValue = ALWAYS, description = {
+      "The bytes read to detect the stream, 0 for FFmpeg's default or 32768 if low latency"})
+  private int inputProbeSize = 0;
+
+  @Option(names = {"--in-analyze-duration"}, showDefaultValue = ALWAYS, description = {
+      "The milliseconds of stream analyzed, 0 for FFmpeg's default or 100 if low latency"})
+  private int inputAnalyzeDuration = 0;
+
+  @Option(names = {"--in-timeout"}, showDefaultValue = ALWAYS, description = {
+      "Milliseconds without data after which the stream is considered lost, 0 waits forever"})
+  private int inputTimeout = 5000;
+
+  @Option(names = {"--in-reconnect-attempts"}, showDefaultValue = ALWAYS, description = {
+      "The reconnections tried in a row when the stream is lost, -1 retries forever"})
+  private int inputReconnectAttempts = -1;
+
+  @Option(names = {"--in-reconnect-delay"}, showDefaultValue = ALWAYS, description = {
+      "Milliseconds before the first reconnection, doubled after each failed one"})
+  private int inputReconnectDelay = 250;
+
+  @Option(names = {"--in-reconnect-max-delay"}, showDefaultValue = ALWAYS, description = {
+      "The longest wait in milliseconds between two reconnections"})
+  private int inputReconnectMaxDelay = 10000;
+
   /*****************************************/
   /***                                   ***/
   /***       Video Config Output         ***/
@@ -189,82 +390,238 @@ public class LiveDetectorCapture implements Runnable {
       "The output GOP (Group Of Pictures) size of the stream"})
   private int gop = DEFAULT_GOP_LENGTH_IN_FRAMES;
 
+  @Option(names = {"--out-quality"}, showDefaultValue = ALWAYS, description = {
+      "The JPEG quality (0-100) of the frames served with --out-type=mjpeg"})
+  private int outputQuality = 80;
+
+  @Option(names = {"--output"}, description = {
+      "An extra output of the same frames, as <output>.<property>=<value>",
+      "eg: --output archive.address=out.mp4 --output archive.format=mp4",
+      "unset properties fall back to the --out options, outputs encoded alike share the encoding"})
+  private Map<String, String> extraOutputs = new LinkedHashMap<>();
+
+  /*****************************************/
+  /***                                   ***/
+  /***          Pipeline Config          ***/
+  /***                                   ***/
+  /*****************************************/
+
+  @Option(names = {"--queue-capacity"}, showDefaultValue = ALWAYS, description = {
+      "The number of frames each pipeline stage can hold before applying the drop policy"})
+  private int queueCapacity = 2;
+
+  @Option(names = {"--drop-policy"}, showDefaultValue = ALWAYS, description = {
+      "What a full pipeline stage does with a new frame: DROP_OLDEST, BLOCK or DROP_NEWEST"})
+  private DropPolicy dropPolicy = DropPolicy.DROP_OLDEST;
+
+  @Option(names = {"--streams-config"}, description = {
+      "A properties file listing several input/output pairs to process with the same nets",
+      "eg: streams=a,b  a.in.address=rtmp://...  a.out.type=stream  b.in.type=direct",
+      "every property a stream does not set falls back to the matching command line option"})
+  private Path streamsConfig;
+
+  @Option(names = {"--stats-interval"}, showDefaultValue = ALWAYS, description = {
+      "Interval in seconds between two pipeline queue reports, 0 disables the report"})
+  private int statsInterval = 0;
+
+  @Option(names = {"--pool-max-idle"}, showDefaultValue = ALWAYS, description = {
+      "The number of idle frame and blob buffers of each size kept for reuse"})
+  private int poolMaxIdle = 8;
+
   public static final VideoEndedException THE_CAPTURE_HAD_ENDED = new VideoEndedException(
       "The capture had ended");
 
-  private static final ToMat converterToMat = new ToMat();
-
   public static void main(String[] args) {
     CommandLine cmd = new CommandLine(
         new LiveDetectorCapture()).setCaseInsensitiveEnumValuesAllowed(true);
+    cmd.addSubcommand("query", new QueryCommand());
     System.exit(cmd.execute(args));
   }
 
   @Override
   public void run() {
-    final YoloNet yoloNet = buildDNN();
-    var input = Source.get(inputType,
-        Map.ofEntries(Map.entry(WIDTH, inputWidth), Map.entry(HEIGHT, inputHeight),
-            Map.entry(ADDRESS, inputAddress), Map.entry(DEVICE_NUMBER, DEFAULT_DEVICE_NUMBER),
-            Map.entry(BITRATE, inputBitrate), Map.entry(TUNE, inputTune),
-            Map.entry(PRESET, inputPreset), Map.entry(CRF, inputCrf), Map.entry(CODEC, inputCodec),
-            Map.entry(FORMAT, inputFormat), Map.entry(FRAME_RATE, inputFrameRate)));
-    var diffusion = Diffusion.get(outputType,
-        Map.ofEntries(Map.entry(INPUT_TYPE, input), Map.entry(ADDRESS, outputAddress),
-            Map.entry(WIDTH, outputWidth), Map.entry(HEIGHT, outputHeight),
-            Map.entry(BITRATE, outputBitrate), Map.entry(TUNE, outputTune),
-            Map.entry(PRESET, outputPreset), Map.entry(CRF, outputCrf),
-            Map.entry(CODEC, outputCodec), Map.entry(FORMAT, outputFormat), Map.entry(GOP, gop),
-            Map.entry(FRAME_RATE, outputFrameRate)));
-
+    final StartupTimer startup = new StartupTimer();
+    final BufferPool bufferPool = new BufferPool(poolMaxIdle);
+    final DetectionSink metadata = DetectionSink.all(Arrays.asList(
+        metadataAddress == null ? null
+            : DetectionSink.open(metadataAddress, metadataFormat, metadataFlush),
+        storeDirectory == null ? null : DetectionStore.open(storeDirectory)));
+    var definitions = streamsConfig == null ? List.of(defaultStream())
+        : StreamDefinition.load(streamsConfig, defaultStream());
+    var archives = definitions.stream()
+        .filter(definition -> definition.inputType() == InputType.FILE).toList();
+    var streams = definitions.stream()
+        .filter(definition -> definition.inputType() != InputType.FILE)
+        .map(definition -> new DetectionStream(definition, bufferPool, queueCapacity, dropPolicy,
+            statsInterval, startup, motionConfig(), trackerConfig(), metadata)).toList();
+
+    // The nets load while the sources connect and the outputs are built
+    var startupExecutor = Executors.newCachedThreadPool();
+    var yoloNetsLoaded = CompletableFuture.supplyAsync(
+        () -> startup.time("yolo", () -> buildDNN(bufferPool, startup)), startupExecutor);
+    var streamsOpened = streams.stream()
+        .map(stream -> CompletableFuture.runAsync(stream::open, startupExecutor))
+        .toList();
+    startupExecutor.shutdown();
+
+    YoloNetPool yoloNets = null;
+    InferenceBatcher batcher = null;
+    TiledPredictor tiles = null;
+    ScheduledExecutorService reporter = null;
     try {
-      Stream.generate(input::capture).map(opt -> opt.orElseThrow(() -> THE_CAPTURE_HAD_ENDED))
-          .map(matFrame -> predict(yoloNet, matFrame)).forEachOrdered(diffusion::show);
-    } catch (VideoEndedException vee) {
-      //Do Nothing
+      yoloNets = yoloNetsLoaded.join();
+      var opened = opened(streams, streamsOpened);
+      reportStartup(startup, opened);
+      // Tiling keeps every net busy with the tiles of a frame, frames are not batched then
+      tiles = yoloNets == null || tileColumns * tileRows <= 1 ? null
+          : new TiledPredictor(yoloNets, tileColumns, tileRows, tileOverlap, tileFullFrame,
+              tileBatch, nmsConfig(), confidenceThreshold);
+      batcher = yoloNets == null || tiles != null || batchSize <= 1 ? null
+          : new InferenceBatcher(yoloNets, batchSize, batchDelay);
+      reporter = reportEvery(batcher, bufferPool, metadata);
+
+      // A single stream may keep every net busy, several streams share them one frame at a time
+      int parallelism = opened.size() > 1 || !archives.isEmpty() || yoloNets == null
+          || tiles != null ? 1 : yoloNets.size() * Math.max(1, batchSize);
+      final Predictor predictor = tiles != null ? tiles : batcher != null ? batcher : yoloNets;
+      var jobs = new LinkedHashMap<String, Runnable>();
+      opened.forEach(stream -> jobs.put("stream-" + stream.getName(),
+          () -> stream.run(predictor == null ? null
+              : new InferenceScheduler(predictor, parallelism))));
+      if (!archives.isEmpty()) {
+        // Files are taken one at a time, each one keeping every worker busy
+        int workers = offlineWorkers > 0 ? offlineWorkers : yoloNets == null
+            ? Runtime.getRuntime().availableProcessors()
+            : yoloNets.size() * Math.max(1, batchSize);
+        jobs.put("offline", () -> archives.forEach(archive ->
+            new OfflineDetection(archive, predictor, workers, metadata).run()));
+      }
+      if (jobs.size() == 1) {
+        jobs.values().iterator().next().run();
+      } else {
+        var threads = jobs.entrySet().stream()
+            .map(job -> new Thread(job.getValue(), job.getKey()))
+            .toList();
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+          thread.join();
+        }
+      }
     } catch (Throwable e) {
       e.printStackTrace();
     } finally {
-      terminate(yoloNet, input, diffusion);
+      terminate(reporter, tiles, batcher, yoloNets, metadata);
     }
   }
 
-  private static Frame predict(YoloNet yolo, Frame frame) {
-    if (yolo == null) {
-      return frame;
+  /**
+   * A stream that failed to open is left out, the others still run.
+   */
+  private static List<DetectionStream> opened(List<DetectionStream> streams,
+      List<CompletableFuture<Void>> streamsOpened) {
+    var opened = new ArrayList<DetectionStream>();
+    for (int i = 0; i < streams.size(); i++) {
+      try {
+        streamsOpened.get(i).join();
+        opened.add(streams.get(i));
+      } catch (CompletionException e) {
+        System.err.println("[" + streams.get(i).getName() + "] could not be opened, skipped");
+        e.getCause().printStackTrace();
+      }
     }
+    return opened;
+  }
 
-    var matFrame = converterToMat.convert(frame);
-    executorService.submit(() -> {
-      predictions = yolo.predict(matFrame);
-      index.set(0);
-    });
-    if (predictions != null) {
-      DetectionUtils.draw(predictions, matFrame);
+  private StreamDefinition defaultStream() {
+    Map<String, Object> outputProperties = Map.ofEntries(Map.entry(ADDRESS, outputAddress),
+        Map.entry(WIDTH, outputWidth), Map.entry(HEIGHT, outputHeight),
+        Map.entry(BITRATE, outputBitrate), Map.entry(TUNE, outputTune),
+        Map.entry(PRESET, outputPreset), Map.entry(CRF, outputCrf),
+        Map.entry(CODEC, outputCodec), Map.entry(FORMAT, outputFormat), Map.entry(GOP, gop),
+        Map.entry(FRAME_RATE, outputFrameRate), Map.entry(QUALITY, outputQuality));
+    var extraOutputProperties = new Properties();
+    extraOutputProperties.putAll(extraOutputs);
+    return new StreamDefinition("main", inputType,
+        Map.ofEntries(Map.entry(WIDTH, inputWidth), Map.entry(HEIGHT, inputHeight),
+            Map.entry(ADDRESS, inputAddress), Map.entry(DEVICE_NUMBER, DEFAULT_DEVICE_NUMBER),
+            Map.entry(BITRATE, inputBitrate), Map.entry(TUNE, inputTune),
+            Map.entry(PRESET, inputPreset), Map.entry(CRF, inputCrf), Map.entry(CODEC, inputCodec),
+            Map.entry(FORMAT, inputFormat), Map.entry(FRAME_RATE, inputFrameRate),
+            Map.entry(SKIP_BACKLOG, inputSkipBacklog), Map.entry(LOWRES, inputLowres),
+            Map.entry(LOW_LATENCY, inputLowLatency), Map.entry(PROBE_SIZE, inputProbeSize),
+            Map.entry(ANALYZE_DURATION, inputAnalyzeDuration), Map.entry(TIMEOUT, inputTimeout),
+            Map.entry(RECONNECT_ATTEMPTS, inputReconnectAttempts),
+            Map.entry(RECONNECT_DELAY, inputReconnectDelay),
+            Map.entry(RECONNECT_MAX_DELAY, inputReconnectMaxDelay)),
+        outputType, outputProperties,
+        StreamDefinition.extraOutputs(extraOutputProperties, "", outputType, outputProperties));
+  }
+
+  private ScheduledExecutorService reportEvery(Object... sharedComponents) {
+    var components = Arrays.stream(sharedComponents).filter(Objects::nonNull).toList();
+    if (statsInterval <= 0 || components.isEmpty()) {
+      return null;
     }
-    return converterToMat.convert(matFrame);
+    var reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      var thread = new Thread(runnable, "shared-reporter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    reporter.scheduleAtFixedRate(() -> System.out.println("[shared] " + components),
+        statsInterval, statsInterval, TimeUnit.SECONDS);
+    return reporter;
+  }
+
+  /**
+   * Prints the startup phases once every stream encoded its first frame.
+   */
+  private static void reportStartup(StartupTimer startup, List<DetectionStream> streams) {
+    CompletableFuture.allOf(streams.stream()
+            .map(DetectionStream::firstFrame)
+            .toArray(CompletableFuture[]::new))
+        .thenRunAsync(() -> System.out.println(startup));
   }
 
-  private static void terminate(YoloNet yoloNet, Source source, Diffusion diffusion) {
+  private static void terminate(ScheduledExecutorService reporter, AutoCloseable... inference) {
     try {
-      source.stop();
-      diffusion.stop();
-      if (yoloNet != null) {
-        yoloNet.stop();
+      if (reporter != null) {
+        reporter.shutdownNow();
+      }
+      for (AutoCloseable closeable : inference) {
+        if (closeable != null) {
+          closeable.close();
+        }
       }
-      executorService.shutdownNow();
     } catch (Throwable e) {
       throw new RuntimeException(e);
     }
   }
 
-  private YoloNet buildDNN() {
-    YoloNet yolo = null;
+  private YoloNetPool buildDNN(BufferPool bufferPool, StartupTimer startup) {
+    YoloNetPool yoloNets = null;
     if (yoloEnabled) {
-      NetConfig netConfig = modelFormat.toConfig(modelPath);
-      yolo = new YoloNet(netConfig, yoloWidth, yoloHeight, confidenceThreshold,
-          nmsThreshold, cudaEnabled).initialize();
+      NetConfig modelConfig = modelFormat.toConfig(modelPath, onnxLayout);
+      NetConfig netConfig = shareWeights && yoloInstances > 1
+          ? startup.time("yolo-files", modelConfig::shared) : modelConfig;
+      NmsConfig nmsConfig = nmsConfig();
+      yoloNets = new YoloNetPool(yoloInstances, openCvThreads,
+          index -> startup.time("yolo[" + index + "]",
+              () -> new YoloNet(netConfig, yoloWidth, yoloHeight, confidenceThreshold, nmsConfig,
+                  cudaEnabled, precision, decodeMode, letterbox, bufferPool).initialize()));
     }
-    return yolo;
+    return yoloNets;
+  }
+
+  private MotionConfig motionConfig() {
+    return motionGate ? new MotionConfig(motionWidth, motionThreshold, motionArea, motionMaxGap)
+        : null;
+  }
+
+  private TrackerConfig trackerConfig() {
+    return tracking ? new TrackerConfig(trackIou, trackMaxMisses) : null;
+  }
+
+  private NmsConfig nmsConfig() {
+    return new NmsConfig(nmsThreshold, nmsClassAware, nmsTopK, softNms, softNmsSigma);
   }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package org.rsultan.metadata;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Where the detections of every frame go for downstream consumers, shared by the streams.
+ * <p>
+ * Writing never waits for I/O.
+ */
+public interface DetectionSink extends AutoCloseable {
+
+  String TCP_SCHEME = "tcp";
+
+  /**
+   * @param timestamp the frame timestamp, in microseconds
+   */
+  void write(String stream, long frame, long timestamp, List<DetectionResult> detections);
+
+  /**
+   * Same as {@link #write}, for frames whose wall clock time is known, as those of recorded
+   * files processed faster than real time.
+   *
+   * @param time the wall clock time of the frame, in microseconds since the epoch
+   */
+  default void writeRecorded(String stream, long frame, long timestamp, long time,
+      List<DetectionResult> detections) {
+    write(stream, frame, timestamp, detections);
+  }
+
+  @Override
+  void close();
+
+  /**
+   * @param address a file path, or {@code tcp://host:port} to send the detections to a server
+   */
+  static DetectionSink open(String address, MetadataFormat format, long flushMillis) {
+    return address.startsWith(TCP_SCHEME + "://")
+        ? new SocketDetectionSink(URI.create(address), format)
+        : new MappedDetectionLog(Path.of(address), format, flushMillis);
+  }
+
+  /**
+   * @return a sink writing to every given one, {@code null} when none is given
+   */
+  static DetectionSink all(List<DetectionSink> sinks) {
+    var targets = sinks.stream().filter(Objects::nonNull).toList();
+    if (targets.size() <= 1) {
+      return targets.isEmpty() ? null : targets.get(0);
+    }
+    return new DetectionSink() {
+      @Override
+      public void write(String stream, long frame, long timestamp,
+          List<DetectionResult> detections) {
+        targets.forEach(target -> target.write(stream, frame, timestamp, detections));
+      }
+
+      @Override
+      public void writeRecorded(String stream, long frame, long timestamp, long time,
+          List<DetectionResult> detections) {
+        targets.forEach(
+            target -> target.writeRecorded(stream, frame, timestamp, time, detections));
+      }
+
+      @Override
+      public void close() {
+        targets.forEach(DetectionSink::close);
+      }
+
+      @Override
+      public String toString() {
+        return targets.stream().map(Object::toString).collect(Collectors.joining(", "));
+      }
+    };
+  }
+}
@@ -0,0 +1,144 @@
+package org.rsultan.metadata;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.rsultan.metadata.MetadataFormat.Scratch;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Appends the detections to a memory mapped file.
+ * <p>
+ * Writers only copy their record into the mapping, a background thread forces the written
+ * regions to disk at a fixed rate. The file grows by whole regions and is cut down to what was
+ * written once closed, until then zeros mark the end of the log for readers following it: a zero
+ * byte between JSON lines, a zero length between binary records. A log left open by a crash is
+ * cut after its last complete record when opened again.
+ */
+public class MappedDetectionLog implements DetectionSink {
+
+  private static final long REGION_BYTES = 64L << 20;
+
+  private final Path path;
+  private final MetadataFormat format;
+  private final FileChannel channel;
+  private final ScheduledExecutorService flusher;
+  private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+  private final List<MappedByteBuffer> unflushed = new ArrayList<>();
+  private final LongAdder records = new LongAdder();
+  private final LongAdder flushes = new LongAdder();
+  private MappedByteBuffer region;
+  private long position;
+  private boolean closed;
+
+  public MappedDetectionLog(Path path, MetadataFormat format, long flushMillis) {
+    this.path = path;
+    this.format = format;
+    try {
+      channel = FileChannel.open(path, CREATE, READ, WRITE);
+      // The stream is left open, closing it would close the channel
+      position = format.end(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+      channel.truncate(position);
+      map();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      var thread = new Thread(runnable, "detection-log-flusher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher.scheduleAtFixedRate(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void write(String stream, long frame, long timestamp,
+      List<DetectionResult> detections) {
+    var buffers = scratch.get();
+    format.encode(buffers, stream, frame, timestamp, detections);
+    var record = buffers.buffer;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      if (region.remaining() < record.remaining()) {
+        map();
+      }
+      position += record.remaining();
+      region.put(record);
+    }
+    records.increment();
+  }
+
+  /**
+   * Maps the next region from the current position, the previous one is left to the flusher.
+   */
+  private void map() {
+    try {
+      if (region != null) {
+        unflushed.add(region);
+      }
+      region = channel.map(MapMode.READ_WRITE, position, REGION_BYTES);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void flush() {
+    List<MappedByteBuffer> regions;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      regions = new ArrayList<>(unflushed);
+      unflushed.clear();
+      regions.add(region);
+    }
+    regions.forEach(MappedByteBuffer::force);
+    flushes.increment();
+  }
+
+  @Override
+  public void close() {
+    flusher.shutdownNow();
+    try {
+      flusher.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      unflushed.forEach(MappedByteBuffer::force);
+      region.force();
+      try (channel) {
+        channel.truncate(position);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "metadata[" + path.getFileName() + ", records=" + records.sum() + ", flushes="
+        + flushes.sum() + "]";
+  }
+}
@@ -0,0 +1,168 @@
+package org.rsultan.metadata;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * How the detections of a frame are written.
+ */
+public enum MetadataFormat {
+
+  /**
+   * One JSON object per frame and per line.
+   */
+  JSON {
+    @Override
+    void encode(Scratch scratch, String stream, long frame, long timestamp,
+        List<DetectionResult> detections) {
+      var json = scratch.text;
+      json.setLength(0);
+      json.append("{\"stream\":");
+      quote(json, stream)
+          .append(",\"frame\":").append(frame)
+          .append(",\"timestamp\":").append(timestamp)
+          .append(",\"detections\":[");
+      for (int i = 0; i < detections.size(); i++) {
+        var detection = detections.get(i);
+        json.append(i == 0 ? "{" : ",{")
+            .append("\"classId\":").append(detection.classId())
+            .append(",\"class\":");
+        quote(json, detection.className())
+            .append(",\"track\":").append(detection.trackId())
+            .append(",\"confidence\":").append(detection.confidence())
+            .append(",\"x\":").append(detection.x())
+            .append(",\"y\":").append(detection.y())
+            .append(",\"width\":").append(detection.width())
+            .append(",\"height\":").append(detection.height())
+            .append(",\"predicted\":").append(detection.predicted())
+            .append('}');
+      }
+      json.append("]}\n");
+      var bytes = json.toString().getBytes(UTF_8);
+      scratch.ensure(bytes.length).put(bytes).flip();
+    }
+
+    @Override
+    long end(InputStream log) throws IOException {
+      long end = 0;
+      long read = 0;
+      for (int b = log.read(); b > 0; b = log.read()) {
+        read++;
+        if (b == '\n') {
+          end = read;
+        }
+      }
+      return end;
+    }
+
+    private static StringBuilder quote(StringBuilder json, String value) {
+      json.append('"');
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if (c == '"' || c == '\\') {
+          json.append('\\');
+        }
+        json.append(c < ' ' ? ' ' : c);
+      }
+      return json.append('"');
+    }
+  },
+
+  /**
+   * Big endian records: {@code int length} of what follows, {@code short} length and UTF-8 bytes
+   * of the stream name, {@code long frame}, {@code long timestamp}, {@code short count} then for
+   * each detection {@code short classId}, {@code int trackId}, {@code float confidence},
+   * {@code int x, y, width, height} and {@code byte predicted}, 1 for a box moved ahead by the
+   * tracker. Class identifiers are the line numbers of the names file.
+   */
+  BINARY {
+    private static final int HEADER_BYTES = 4 + 2 + 8 + 8 + 2;
+    private static final int DETECTION_BYTES = 2 + 4 + 4 + 4 * 4 + 1;
+
+    @Override
+    void encode(Scratch scratch, String stream, long frame, long timestamp,
+        List<DetectionResult> detections) {
+      var name = scratch.name(stream);
+      int length = HEADER_BYTES + name.length + detections.size() * DETECTION_BYTES;
+      var buffer = scratch.ensure(length)
+          .putInt(length - 4)
+          .putShort((short) name.length).put(name)
+          .putLong(frame)
+          .putLong(timestamp)
+          .putShort((short) detections.size());
+      for (DetectionResult detection : detections) {
+        buffer.putShort((short) detection.classId())
+            .putInt(detection.trackId())
+            .putFloat(detection.confidence())
+            .putInt(detection.x()).putInt(detection.y())
+            .putInt(detection.width()).putInt(detection.height())
+            .put((byte) (detection.predicted() ? 1 : 0));
+      }
+      buffer.flip();
+    }
+
+    @Override
+    long end(InputStream log) throws IOException {
+      var records = new DataInputStream(log);
+      long end = 0;
+      try {
+        for (int length = records.readInt(); length > 0; length = records.readInt()) {
+          records.skipNBytes(length);
+          end += 4 + length;
+        }
+      } catch (EOFException e) {
+        // The last record was cut short
+      }
+      return end;
+    }
+  };
+
+  /**
+   * Encodes the detections of a frame, the result is left readable in {@link Scratch#buffer}.
+   *
+   * @param timestamp the frame timestamp, in microseconds
+   */
+  abstract void encode(Scratch scratch, String stream, long frame, long timestamp,
+      List<DetectionResult> detections);
+
+  /**
+   * Finds where the records of a log left open by a crash stop, before the zeros of its last
+   * region or a record cut short.
+   *
+   * @return the length of the complete records at the start of the log
+   */
+  abstract long end(InputStream log) throws IOException;
+
+  /**
+   * Buffers reused from one frame to the next by a writing thread.
+   */
+  static final class Scratch {
+
+    private final StringBuilder text = new StringBuilder();
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    private String stream;
+    private byte[] name;
+
+    private ByteBuffer ensure(int capacity) {
+      if (buffer.capacity() < capacity) {
+        buffer = ByteBuffer.allocate(Math.max(capacity, buffer.capacity() * 2));
+      }
+      return buffer.clear();
+    }
+
+    private byte[] name(String stream) {
+      if (!stream.equals(this.stream)) {
+        this.stream = stream;
+        name = stream.getBytes(UTF_8);
+      }
+      return name;
+    }
+  }
+}
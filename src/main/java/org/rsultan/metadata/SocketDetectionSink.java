@@ -0,0 +1,104 @@
+package org.rsultan.metadata;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import org.rsultan.metadata.MetadataFormat.Scratch;
+import org.rsultan.pipeline.DropPolicy;
+import org.rsultan.pipeline.RingBuffer;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Sends the detections to a TCP server.
+ * <p>
+ * Records are queued and written by a background thread, the oldest ones are dropped while the
+ * server is slow or unreachable. The connection is attempted again after a failure.
+ */
+public class SocketDetectionSink implements DetectionSink {
+
+  private static final int QUEUE_CAPACITY = 1024;
+  private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+  private final URI address;
+  private final MetadataFormat format;
+  private final RingBuffer<byte[]> queue =
+      new RingBuffer<>(QUEUE_CAPACITY, DropPolicy.DROP_OLDEST);
+  private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+  private final LongAdder sent = new LongAdder();
+  private final Thread sender;
+
+  public SocketDetectionSink(URI address, MetadataFormat format) {
+    this.address = address;
+    this.format = format;
+    this.sender = new Thread(this::send, "detection-sender");
+    sender.setDaemon(true);
+    sender.start();
+  }
+
+  @Override
+  public void write(String stream, long frame, long timestamp,
+      List<DetectionResult> detections) {
+    var buffers = scratch.get();
+    format.encode(buffers, stream, frame, timestamp, detections);
+    var record = buffers.buffer;
+    try {
+      queue.offer(Arrays.copyOfRange(record.array(), record.position(), record.limit()));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void send() {
+    try {
+      var next = queue.take();
+      while (next.isPresent()) {
+        try (var socket = new Socket()) {
+          socket.connect(new InetSocketAddress(address.getHost(), address.getPort()));
+          OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+          while (next.isPresent()) {
+            out.write(next.get());
+            sent.increment();
+            next = queue.size() > 0 ? queue.take() : flushThenTake(out);
+          }
+        } catch (IOException e) {
+          System.err.println("Could not send detections to " + address + ": " + e.getMessage());
+          Thread.sleep(RECONNECT_DELAY_MILLIS);
+          next = queue.take();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Flushes the records written so far before waiting for new ones.
+   */
+  private Optional<byte[]> flushThenTake(OutputStream out)
+      throws IOException, InterruptedException {
+    out.flush();
+    return queue.take();
+  }
+
+  @Override
+  public void close() {
+    queue.close();
+    try {
+      sender.join(RECONNECT_DELAY_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "metadata[" + address + ", sent=" + sent.sum() + ", dropped=" + queue.dropped() + "]";
+  }
+}
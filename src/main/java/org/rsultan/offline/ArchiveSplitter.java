@@ -0,0 +1,118 @@
+package org.rsultan.offline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FrameGrabber.Exception;
+
+/**
+ * Splits a video file at keyframes into spans of about the same duration, each one decodable on
+ * its own.
+ * <p>
+ * Only the packets are read to find the keyframes, nothing is decoded. Spans start on a keyframe
+ * and are bounded by presentation timestamps: a frame presented before a keyframe but stored after
+ * it, as B-frames reordered across an open group of pictures, belongs to the previous span. Frames
+ * are numbered in presentation order, the order the decoder hands them out.
+ */
+class ArchiveSplitter {
+
+  private ArchiveSplitter() {
+  }
+
+  /**
+   * @param start      the timestamp of the first frame of the span, in microseconds
+   * @param end        the timestamp the span stops before, {@code Long.MAX_VALUE} for the last one
+   * @param firstFrame the number of the first frame of the span in the file, in presentation order
+   */
+  record Span(int index, long start, long end, long firstFrame) {
+
+  }
+
+  /**
+   * @param count the number of spans wanted, fewer are returned if the file lacks keyframes
+   */
+  static List<Span> split(String file, int count) throws Exception {
+    var keyframes = new ArrayList<Long>();
+    // Packets come in decoding order, their timestamps are sorted afterwards to number the frames
+    long[] timestamps = new long[1024];
+    int frames = 0;
+    try (var grabber = new FFmpegFrameGrabber(file)) {
+      grabber.start();
+      int video = grabber.getVideoStream();
+      var timeBase = grabber.getFormatContext().streams(video).time_base();
+      // Frame timestamps are relative to the start of the file, as are the spans
+      long startTime = grabber.getFormatContext().start_time() == avutil.AV_NOPTS_VALUE ? 0
+          : grabber.getFormatContext().start_time();
+      AVPacket packet;
+      while ((packet = grabber.grabPacket()) != null) {
+        if (packet.stream_index() == video) {
+          long pts = packet.pts() != avutil.AV_NOPTS_VALUE ? packet.pts() : packet.dts();
+          long timestamp = 1_000_000L * pts * timeBase.num() / timeBase.den() - startTime;
+          if ((packet.flags() & avcodec.AV_PKT_FLAG_KEY) != 0) {
+            keyframes.add(timestamp);
+          }
+          if (frames == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, frames * 2);
+          }
+          timestamps[frames++] = timestamp;
+        }
+        avcodec.av_packet_unref(packet);
+      }
+    }
+    if (keyframes.isEmpty()) {
+      throw new IllegalArgumentException("No keyframe found in " + file);
+    }
+    return spans(keyframes, timestamps, frames, count);
+  }
+
+  /**
+   * @param keyframes  the keyframe timestamps, in any order
+   * @param timestamps the timestamps of every frame of the file in decoding order, sorted in place
+   * @param frames     the number of frames, the length of {@code timestamps} in use
+   */
+  static List<Span> spans(List<Long> keyframes, long[] timestamps, int frames, int count) {
+    keyframes.sort(null);
+    Arrays.sort(timestamps, 0, frames);
+    long last = timestamps[frames - 1];
+
+    var starts = new ArrayList<Long>();
+    starts.add(keyframes.get(0));
+    long first = keyframes.get(0);
+    int next = 1;
+    for (int span = 1; span < count && next < keyframes.size(); span++) {
+      long target = first + (last - first) * span / count;
+      while (next < keyframes.size() && keyframes.get(next) < target) {
+        next++;
+      }
+      if (next < keyframes.size()) {
+        starts.add(keyframes.get(next++));
+      }
+    }
+
+    var spans = new ArrayList<Span>(starts.size());
+    for (int i = 0; i < starts.size(); i++) {
+      long start = starts.get(i);
+      long end = i + 1 < starts.size() ? starts.get(i + 1) : Long.MAX_VALUE;
+      spans.add(new Span(i, start, end, presented(timestamps, frames, start)));
+    }
+    return spans;
+  }
+
+  /**
+   * @return the number of frames presented before the given timestamp
+   */
+  private static int presented(long[] timestamps, int frames, long timestamp) {
+    int index = Arrays.binarySearch(timestamps, 0, frames, timestamp);
+    if (index < 0) {
+      return -index - 1;
+    }
+    while (index > 0 && timestamps[index - 1] == timestamp) {
+      index--;
+    }
+    return index;
+  }
+}
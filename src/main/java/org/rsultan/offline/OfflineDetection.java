@@ -0,0 +1,257 @@
+package org.rsultan.offline;
+
+import static org.rsultan.video.Constants.ADDRESS;
+import static org.rsultan.video.Constants.FORMAT;
+import static org.rsultan.video.Constants.FRAME_RATE;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.OpenCVFrameConverter.ToMat;
+import org.rsultan.metadata.DetectionSink;
+import org.rsultan.offline.ArchiveSplitter.Span;
+import org.rsultan.utils.DetectionUtils;
+import org.rsultan.video.StreamDefinition;
+import org.rsultan.video.diffusion.Diffusion;
+import org.rsultan.video.diffusion.OutputType;
+import org.rsultan.yolo.net.Predictor;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Annotates a video file as fast as the machine allows, instead of at its frame rate.
+ * <p>
+ * The file is split at keyframes into spans that are decoded, inferred and encoded in parallel,
+ * each one by its own grabber and recorder into a part file. The parts are then joined in order
+ * into the stream output without being encoded again, and the detections are written to the sink
+ * in frame order, at the time they were recorded. Only the main output of the stream is written,
+ * it must be a {@link OutputType#STREAM} one, and only with the video: the audio is dropped.
+ */
+public class OfflineDetection {
+
+  private static final int SPANS_PER_WORKER = 4;
+  private static final String PART_FORMAT = "matroska";
+  private static final String CREATION_TIME = "creation_time";
+
+  private final StreamDefinition definition;
+  private final Predictor predictor;
+  private final int workers;
+  private final DetectionSink sink;
+  private final LongAdder frames = new LongAdder();
+  private final AtomicInteger spansDone = new AtomicInteger();
+  private final Map<Integer, List<FrameDetections>> pending = new HashMap<>();
+  private int nextToWrite;
+  private int spanCount;
+  private long recordingStart;
+
+  /**
+   * @param predictor the detections of the frames, null to copy them untouched
+   * @param workers   the number of spans processed at the same time
+   */
+  public OfflineDetection(StreamDefinition definition, Predictor predictor, int workers,
+      DetectionSink sink) {
+    if (definition.outputType() != OutputType.STREAM) {
+      throw new IllegalArgumentException(
+          "Files can only be processed to a stream output, not " + definition.outputType());
+    }
+    this.definition = definition;
+    this.predictor = predictor;
+    this.workers = Math.max(1, workers);
+    this.sink = sink;
+  }
+
+  public void run() {
+    var file = (String) definition.inputProperties().get(ADDRESS);
+    var output = Path.of((String) definition.outputProperties().get(ADDRESS)).toAbsolutePath();
+    long begin = System.nanoTime();
+    ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+      var thread = new Thread(runnable, "offline-" + getName());
+      thread.setDaemon(true);
+      return thread;
+    });
+    Path parts = null;
+    try {
+      parts = Files.createTempDirectory(output.getParent(), output.getFileName() + ".parts-");
+      recordingStart = recordingStart(file);
+      var spans = ArchiveSplitter.split(file, workers * SPANS_PER_WORKER);
+      spanCount = spans.size();
+      var partFiles = new ArrayList<Path>(spans.size());
+      var done = new ArrayList<CompletableFuture<Void>>(spans.size());
+      for (Span span : spans) {
+        var part = parts.resolve(String.format("part-%05d.mkv", span.index()));
+        partFiles.add(part);
+        done.add(CompletableFuture.runAsync(() -> process(file, span, part), executor));
+      }
+      CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).join();
+      join(partFiles, parts.resolve("parts.txt"), output.toString());
+    } catch (Exception e) {
+      throw new RuntimeException("Could not process " + file, e);
+    } finally {
+      executor.shutdownNow();
+      delete(parts);
+    }
+    long elapsed = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+    System.out.println("[offline] " + getName() + ": " + frames.sum() + " frames in "
+        + elapsed / 1000f + "s (" + frames.sum() * 1000 / elapsed + " fps)");
+  }
+
+  /**
+   * Decodes the span from its keyframe, annotates then encodes every one of its frames.
+   */
+  private void process(String file, Span span, Path part) {
+    var detections = sink == null ? null : new ArrayList<FrameDetections>();
+    var toMat = new ToMat();
+    Diffusion diffusion = null;
+    try (var grabber = new FFmpegFrameGrabber(file)) {
+      grabber.start();
+      if (span.start() > 0) {
+        grabber.setVideoTimestamp(span.start());
+      }
+      var properties = new HashMap<>(definition.outputProperties());
+      properties.put(ADDRESS, part.toString());
+      properties.put(FORMAT, PART_FORMAT);
+      properties.put(FRAME_RATE, (int) Math.max(1, Math.round(grabber.getFrameRate())));
+      diffusion = Diffusion.get(OutputType.STREAM, properties);
+
+      // The decoder hands frames out in presentation order, as the spans are bounded and numbered
+      long number = span.firstFrame();
+      Frame frame;
+      while ((frame = grabber.grabImage()) != null && frame.timestamp < span.end()) {
+        if (frame.timestamp < span.start()) {
+          continue;
+        }
+        if (predictor != null) {
+          var mat = toMat.convert(frame);
+          var results = predictor.predict(mat);
+          if (detections != null) {
+            detections.add(new FrameDetections(number, frame.timestamp, results));
+          }
+          DetectionUtils.draw(results, mat);
+        }
+        diffusion.show(frame);
+        number++;
+      }
+      frames.add(number - span.firstFrame());
+    } catch (Exception e) {
+      throw new RuntimeException("Could not process the span " + span, e);
+    } finally {
+      try {
+        if (diffusion != null) {
+          diffusion.stop();
+        }
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+    completed(span, detections);
+  }
+
+  /**
+   * Spans complete out of order, their detections are held back until the previous ones are
+   * written.
+   */
+  private synchronized void completed(Span span, List<FrameDetections> detections) {
+    spansDone.incrementAndGet();
+    if (detections == null) {
+      return;
+    }
+    pending.put(span.index(), detections);
+    List<FrameDetections> next;
+    while ((next = pending.remove(nextToWrite)) != null) {
+      next.forEach(frame -> sink.writeRecorded(getName(), frame.number(), frame.timestamp(),
+          recordingStart + frame.timestamp(), frame.detections()));
+      nextToWrite++;
+    }
+  }
+
+  /**
+   * @return when the recording started, in microseconds since the epoch: the creation time of
+   * the container when it has one, otherwise the last modification of the file, which was written
+   * as the recording ended
+   */
+  private static long recordingStart(String file) throws Exception {
+    try (var grabber = new FFmpegFrameGrabber(file)) {
+      grabber.start();
+      var creationTime = grabber.getMetadata(CREATION_TIME);
+      if (creationTime != null) {
+        try {
+          return micros(Instant.parse(creationTime.trim()));
+        } catch (DateTimeParseException e) {
+          // Falls back on the file time
+        }
+      }
+      var modified = Files.getLastModifiedTime(Path.of(file)).toInstant();
+      return micros(modified) - Math.max(0, grabber.getLengthInTime());
+    }
+  }
+
+  private static long micros(Instant instant) {
+    return TimeUnit.SECONDS.toMicros(instant.getEpochSecond()) + instant.getNano() / 1000;
+  }
+
+  /**
+   * Copies the packets of the parts one after the other through the concat demuxer, which shifts
+   * the timestamps of each part after the previous one.
+   */
+  private void join(List<Path> partFiles, Path list, String output) throws Exception {
+    var lines = partFiles.stream().map(part -> "file '" + part + "'").toList();
+    Files.write(list, lines);
+    try (var grabber = new FFmpegFrameGrabber(list.toString())) {
+      grabber.setFormat("concat");
+      grabber.setOption("safe", "0");
+      grabber.start();
+      try (var recorder = new FFmpegFrameRecorder(output, grabber.getImageWidth(),
+          grabber.getImageHeight(), grabber.getAudioChannels())) {
+        recorder.setFormat((String) definition.outputProperties().get(FORMAT));
+        recorder.start(grabber.getFormatContext());
+        AVPacket packet;
+        while ((packet = grabber.grabPacket()) != null) {
+          recorder.recordPacket(packet);
+        }
+      }
+    }
+  }
+
+  private static void delete(Path directory) {
+    if (directory == null) {
+      return;
+    }
+    try (var files = Files.list(directory)) {
+      for (Path file : files.toList()) {
+        Files.deleteIfExists(file);
+      }
+      Files.deleteIfExists(directory);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  public String getName() {
+    return definition.name();
+  }
+
+  @Override
+  public String toString() {
+    return "offline[spans=" + spansDone.get() + "/" + spanCount + ", frames=" + frames.sum()
+        + "]";
+  }
+
+  private record FrameDetections(long number, long timestamp, List<DetectionResult> detections) {
+
+  }
+}
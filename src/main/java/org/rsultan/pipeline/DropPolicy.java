@@ -0,0 +1,19 @@
+package org.rsultan.pipeline;
+
+/**
+ * What a {@link RingBuffer} does when an item is offered while it is full.
+ */
+public enum DropPolicy {
+  /**
+   * Evicts the oldest queued item to make room for the new one, keeps the output close to live.
+   */
+  DROP_OLDEST,
+  /**
+   * Blocks the producer until the consumer frees a slot, nothing is lost.
+   */
+  BLOCK,
+  /**
+   * Discards the incoming item and keeps what is already queued.
+   */
+  DROP_NEWEST
+}
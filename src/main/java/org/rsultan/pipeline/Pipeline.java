@@ -0,0 +1,288 @@
+package org.rsultan.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.rsultan.exception.VideoEndedException;
+
+/**
+ * Runs each stage on its own thread, stages are linked by {@link RingBuffer}s.
+ * <p>
+ * Stages declared without a {@link Builder#queue(int, DropPolicy)} in between are fused and run
+ * on the same thread. A stage returning {@code null} drops the item. The source ends the
+ * pipeline by returning an empty {@link Optional}, any stage can end it by throwing a
+ * {@link VideoEndedException}.
+ */
+public class Pipeline {
+
+  private static final long JOIN_TIMEOUT_MILLIS = 1000;
+
+  private final List<Stage> stages;
+  private final CountDownLatch sinkEnded = new CountDownLatch(1);
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private final List<Supplier<String>> monitors = new ArrayList<>();
+  private String name = "pipeline";
+  private ScheduledExecutorService reporter;
+
+  private Pipeline(List<Stage> stages) {
+    this.stages = stages;
+    stages.forEach(stage -> stage.pipeline = this);
+  }
+
+  public static <T> Builder<T> source(String name, Supplier<Optional<T>> source) {
+    var stage = new Stage(name, null);
+    stage.source = () -> source.get().map(Object.class::cast);
+    stage.work = Function.identity();
+    return new Builder<>(new ArrayList<>(), stage);
+  }
+
+  /**
+   * Starts every stage and blocks until the sink has consumed the last item, or a stage failed.
+   */
+  public void run() {
+    stages.forEach(Stage::start);
+    try {
+      sinkEnded.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      stop();
+    }
+    var throwable = failure.get();
+    if (throwable instanceof RuntimeException runtimeException) {
+      throw runtimeException;
+    } else if (throwable != null) {
+      throw new RuntimeException(throwable);
+    }
+  }
+
+  public void stop() {
+    if (reporter != null) {
+      reporter.shutdownNow();
+    }
+    stages.forEach(Stage::close);
+    stages.forEach(Stage::join);
+  }
+
+  public Pipeline name(String name) {
+    this.name = name;
+    return this;
+  }
+
+  /**
+   * Prints the stats of every stage on the standard output at a fixed rate.
+   */
+  public Pipeline reportEvery(long interval, TimeUnit unit) {
+    if (interval > 0) {
+      reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, name + "-reporter");
+        thread.setDaemon(true);
+        return thread;
+      });
+      reporter.scheduleAtFixedRate(() -> System.out.println(report()), interval, interval, unit);
+    }
+    return this;
+  }
+
+  /**
+   * Appends the given probe to every report, for components living outside the stages.
+   */
+  public Pipeline monitor(Supplier<String> monitor) {
+    monitors.add(monitor);
+    return this;
+  }
+
+  public String report() {
+    var report = stats().stream().map(StageStats::toString)
+        .collect(Collectors.joining(" -> ", "[" + name + "] ", ""));
+    return Stream.concat(Stream.of(report), monitors.stream().map(Supplier::get))
+        .collect(Collectors.joining(" "));
+  }
+
+  /**
+   * @return how full the fullest queue is, from 0 to 1, a full queue means the stage after it
+   * cannot keep up
+   */
+  public double backlog() {
+    double backlog = 0;
+    for (Stage stage : stages) {
+      if (stage.input != null) {
+        backlog = Math.max(backlog, (double) stage.input.size() / stage.input.capacity());
+      }
+    }
+    return backlog;
+  }
+
+  public List<StageStats> stats() {
+    return stages.stream().map(Stage::stats).toList();
+  }
+
+  private void ended(Stage stage, Throwable throwable) {
+    if (throwable != null) {
+      failure.compareAndSet(null, throwable);
+    }
+    if (throwable != null || stage == stages.get(stages.size() - 1)) {
+      sinkEnded.countDown();
+    }
+  }
+
+  public static final class Builder<T> {
+
+    private final List<Stage> stages;
+    private final Stage current;
+
+    private Builder(List<Stage> stages, Stage current) {
+      this.stages = stages;
+      this.current = current;
+    }
+
+    /**
+     * Fuses a transformation into the current stage.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> Builder<R> map(Function<T, R> function) {
+      var previous = current.work;
+      current.work = item -> {
+        var value = previous.apply(item);
+        return value == null ? null : function.apply((T) value);
+      };
+      return (Builder<R>) this;
+    }
+
+    /**
+     * Inserts a bounded buffer, whatever comes next runs on a new stage thread.
+     */
+    public Queued<T> queue(int capacity, DropPolicy dropPolicy) {
+      return new Queued<>(stages, current, new RingBuffer<>(capacity, dropPolicy));
+    }
+
+    /**
+     * Same as {@link #queue(int, DropPolicy)}, items the buffer does not pass on are given to
+     * {@code onDiscard}.
+     */
+    @SuppressWarnings("unchecked")
+    public Queued<T> queue(int capacity, DropPolicy dropPolicy, Consumer<T> onDiscard) {
+      return new Queued<>(stages, current,
+          new RingBuffer<>(capacity, dropPolicy, item -> onDiscard.accept((T) item)));
+    }
+  }
+
+  public static final class Queued<T> {
+
+    private final List<Stage> stages;
+    private final Stage previous;
+    private final RingBuffer<Object> buffer;
+
+    private Queued(List<Stage> stages, Stage previous, RingBuffer<Object> buffer) {
+      this.stages = stages;
+      this.previous = previous;
+      this.buffer = buffer;
+    }
+
+    public <R> Builder<R> stage(String name, Function<T, R> function) {
+      stages.add(link());
+      var stage = new Stage(name, buffer);
+      return new Builder<T>(stages, stage).map(function);
+    }
+
+    public Pipeline sink(String name, Consumer<T> consumer) {
+      stages.add(link());
+      var stage = new Stage(name, buffer);
+      new Builder<T>(stages, stage).map(item -> {
+        consumer.accept(item);
+        return null;
+      });
+      stages.add(stage);
+      return new Pipeline(stages);
+    }
+
+    private Stage link() {
+      previous.output = buffer;
+      return previous;
+    }
+  }
+
+  private static final class Stage implements Runnable {
+
+    private final String name;
+    private final RingBuffer<Object> input;
+    private final LongAdder processed = new LongAdder();
+    private Supplier<Optional<Object>> source;
+    private Function<Object, Object> work;
+    private RingBuffer<Object> output;
+    private Pipeline pipeline;
+    private Thread thread;
+
+    private Stage(String name, RingBuffer<Object> input) {
+      this.name = name;
+      this.input = input;
+    }
+
+    private void start() {
+      thread = new Thread(this, "pipeline-" + name);
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    @Override
+    public void run() {
+      Throwable throwable = null;
+      try {
+        Optional<Object> next;
+        while ((next = input == null ? source.get() : input.take()).isPresent()) {
+          var result = work.apply(next.get());
+          processed.increment();
+          if (result != null && output != null && !output.offer(result)) {
+            break;
+          }
+        }
+      } catch (InterruptedException | VideoEndedException e) {
+        // The pipeline is being stopped
+      } catch (Throwable e) {
+        throwable = e;
+      } finally {
+        close();
+        pipeline.ended(this, throwable);
+      }
+    }
+
+    private void close() {
+      if (input != null) {
+        input.close();
+        input.clear();
+      }
+      if (output != null) {
+        output.close();
+      }
+    }
+
+    private void join() {
+      if (thread == null || thread == Thread.currentThread()) {
+        return;
+      }
+      thread.interrupt();
+      try {
+        thread.join(JOIN_TIMEOUT_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private StageStats stats() {
+      return input == null
+          ? new StageStats(name, 0, 0, processed.sum(), 0)
+          : new StageStats(name, input.size(), input.capacity(), processed.sum(), input.dropped());
+    }
+  }
+}
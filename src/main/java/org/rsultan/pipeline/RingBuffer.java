@@ -0,0 +1,162 @@
+package org.rsultan.pipeline;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded single-lock ring buffer linking two pipeline stages.
+ * <p>
+ * Items dropped by the {@link DropPolicy}, refused once closed or cleared are handed to the
+ * discard callback, so that pooled resources can be given back.
+ */
+public class RingBuffer<T> {
+
+  private final Object[] items;
+  private final DropPolicy dropPolicy;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private final AtomicLong dropped = new AtomicLong();
+  private final Consumer<? super T> onDiscard;
+
+  private int head;
+  private int count;
+  private boolean closed;
+
+  public RingBuffer(int capacity, DropPolicy dropPolicy) {
+    this(capacity, dropPolicy, item -> {
+    });
+  }
+
+  public RingBuffer(int capacity, DropPolicy dropPolicy, Consumer<? super T> onDiscard) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.items = new Object[capacity];
+    this.dropPolicy = dropPolicy;
+    this.onDiscard = onDiscard;
+  }
+
+  /**
+   * Offers an item according to the {@link DropPolicy}.
+   *
+   * @return false if the buffer is closed and nothing was queued
+   */
+  public boolean offer(T item) throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (!closed && count == items.length) {
+        switch (dropPolicy) {
+          case BLOCK -> notFull.await();
+          case DROP_NEWEST -> {
+            dropped.incrementAndGet();
+            onDiscard.accept(item);
+            return true;
+          }
+          case DROP_OLDEST -> {
+            discardHead();
+            dropped.incrementAndGet();
+          }
+        }
+      }
+      if (closed) {
+        onDiscard.accept(item);
+        return false;
+      }
+      items[(head + count) % items.length] = item;
+      count++;
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits for the next item.
+   *
+   * @return empty once the buffer is closed and drained
+   */
+  @SuppressWarnings("unchecked")
+  public Optional<T> take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        if (closed) {
+          return Optional.empty();
+        }
+        notEmpty.await();
+      }
+      T item = (T) items[head];
+      items[head] = null;
+      head = (head + 1) % items.length;
+      count--;
+      notFull.signal();
+      return Optional.of(item);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stops accepting items, consumers still drain what is queued.
+   */
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      notEmpty.signalAll();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Drops everything still queued, used when the pipeline is torn down.
+   */
+  public void clear() {
+    lock.lock();
+    try {
+      while (count > 0) {
+        discardHead();
+      }
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void discardHead() {
+    T item = (T) items[head];
+    items[head] = null;
+    head = (head + 1) % items.length;
+    count--;
+    onDiscard.accept(item);
+  }
+
+  public int size() {
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int capacity() {
+    return items.length;
+  }
+
+  public long dropped() {
+    return dropped.get();
+  }
+
+  public DropPolicy getDropPolicy() {
+    return dropPolicy;
+  }
+}
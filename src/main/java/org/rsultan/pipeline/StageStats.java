@@ -0,0 +1,17 @@
+package org.rsultan.pipeline;
+
+/**
+ * Snapshot of a pipeline stage, the queue is the one feeding that stage.
+ */
+public record StageStats(String name, int queueDepth, int queueCapacity, long processed,
+                         long dropped) {
+
+  @Override
+  public String toString() {
+    if (queueCapacity == 0) {
+      return name + "[processed=" + processed + "]";
+    }
+    return name + "[queue=" + queueDepth + "/" + queueCapacity + ", processed=" + processed
+        + ", dropped=" + dropped + "]";
+  }
+}
@@ -0,0 +1,20 @@
+package org.rsultan.store;
+
+/**
+ * Selects the detections of a time range.
+ *
+ * @param from          the first time included, in microseconds since the epoch
+ * @param to            the first time excluded, in microseconds since the epoch
+ * @param className     the class of the detections, null for every class
+ * @param stream        the stream of the detections, null for every stream
+ * @param minConfidence the lowest confidence included
+ */
+public record DetectionQuery(long from, long to, String className, String stream,
+                             float minConfidence) {
+
+  boolean matches(long time, String className, String stream, float confidence) {
+    return time >= from && time < to && confidence >= minConfidence
+        && (this.className == null || this.className.equals(className))
+        && (this.stream == null || this.stream.equals(stream));
+  }
+}
@@ -0,0 +1,423 @@
+package org.rsultan.store;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.rsultan.metadata.DetectionSink;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Keeps the detections on disk for later queries by time range, class, stream and confidence.
+ * <p>
+ * Detections are first gathered in memory, then sealed into an immutable {@link Segment} once
+ * enough of them were gathered or after a while, the segment is written by a background thread.
+ * The same thread regularly merges the small segments older than a few minutes, so that a day
+ * of footage ends up in a handful of files. Frame timestamps are moved onto the wall clock when
+ * the first frame of each stream is stored. Boxes the tracker only predicted are not stored, the
+ * store keeps what the net detected.
+ * <p>
+ * A manifest lists the live segments, it is replaced atomically before the segments it no longer
+ * lists are deleted, so that a querying process never reads a merged segment and its sources.
+ */
+public class DetectionStore implements DetectionSink {
+
+  private static final int SEAL_ROWS = 1 << 16;
+  private static final long SEAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  private static final int COMPACTED_ROWS = 1 << 20;
+  private static final long COMPACT_AFTER_MICROS = TimeUnit.MINUTES.toMicros(10);
+  private static final long COMPACT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  private static final long MAX_CLOCK_DRIFT_MICROS = TimeUnit.MINUTES.toMicros(1);
+  private static final String MANIFEST = "MANIFEST";
+  private static final String TEMPORARY = ".tmp";
+
+  private final Path directory;
+  private final List<Rows> sealing = new ArrayList<>();
+  private final List<Rows> unwritten = new ArrayList<>();
+  private final Map<String, Long> origins = new HashMap<>();
+  private final AtomicLong nextSegment = new AtomicLong();
+  private final ScheduledExecutorService writer;
+  private List<Segment> segments;
+  private Rows rows = new Rows();
+  private long rowsSince = System.currentTimeMillis();
+  private boolean closed;
+
+  private DetectionStore(Path directory, boolean writable) {
+    this.directory = directory;
+    try {
+      if (writable) {
+        Files.createDirectories(directory);
+      }
+      segments = load();
+      if (writable) {
+        writeManifest(segments);
+        deleteUnlisted(segments);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    writer = writable ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+      var thread = new Thread(runnable, "detection-store");
+      thread.setDaemon(true);
+      return thread;
+    }) : null;
+    if (writer != null) {
+      writer.scheduleWithFixedDelay(this::maintain, COMPACT_INTERVAL_MILLIS,
+          COMPACT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Opens the store for writing, creating the directory if needed.
+   */
+  public static DetectionStore open(Path directory) {
+    return new DetectionStore(directory, true);
+  }
+
+  /**
+   * Opens the store for queries only, a writing process may run at the same time.
+   */
+  public static DetectionStore readOnly(Path directory) {
+    return new DetectionStore(directory, false);
+  }
+
+  @Override
+  public void write(String stream, long frame, long timestamp,
+      List<DetectionResult> detections) {
+    if (!detections.isEmpty()) {
+      synchronized (this) {
+        add(stream, frame, wallClockTime(stream, timestamp), detections);
+      }
+    }
+  }
+
+  /**
+   * Recorded frames keep their own time, they are not moved onto the wall clock.
+   */
+  @Override
+  public void writeRecorded(String stream, long frame, long timestamp, long time,
+      List<DetectionResult> detections) {
+    if (!detections.isEmpty()) {
+      synchronized (this) {
+        add(stream, frame, time, detections);
+      }
+    }
+  }
+
+  private void add(String stream, long frame, long time, List<DetectionResult> detections) {
+    if (closed) {
+      return;
+    }
+    for (DetectionResult detection : detections) {
+      if (detection.predicted()) {
+        continue;
+      }
+      rows.add(new StoredDetection(stream, time, frame, detection.className(),
+          detection.trackId(), detection.confidence(), detection.x(), detection.y(),
+          detection.width(), detection.height()));
+    }
+    if (rows.size >= SEAL_ROWS) {
+      seal();
+    }
+  }
+
+  /**
+   * @return the matching detections in time order
+   */
+  public List<StoredDetection> query(DetectionQuery query) {
+    var results = new ArrayList<StoredDetection>();
+    List<Segment> written;
+    List<Rows> sealed;
+    synchronized (this) {
+      written = segments;
+      sealed = List.copyOf(sealing);
+      rows.query(query, results::add);
+    }
+    for (Segment segment : written) {
+      segment.query(query, results::add);
+    }
+    for (Rows memtable : sealed) {
+      memtable.query(query, results::add);
+    }
+    results.sort(Comparator.comparingLong(StoredDetection::time));
+    return results;
+  }
+
+  private long wallClockTime(String stream, long timestamp) {
+    long now = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    var origin = origins.get(stream);
+    if (origin == null || Math.abs(origin + timestamp - now) > MAX_CLOCK_DRIFT_MICROS) {
+      origin = now - timestamp;
+      origins.put(stream, origin);
+    }
+    return origin + timestamp;
+  }
+
+  /**
+   * Hands the gathered rows to the writer, they stay queryable until their segment is open.
+   */
+  private synchronized void seal() {
+    if (rows.size == 0) {
+      return;
+    }
+    var sealed = rows;
+    sealing.add(sealed);
+    rows = new Rows();
+    rowsSince = System.currentTimeMillis();
+    writer.execute(() -> persist(sealed));
+  }
+
+  /**
+   * Writes sealed rows to a segment. When that fails they stay queryable in memory and the next
+   * maintenance writes them again.
+   */
+  private void persist(Rows sealed) {
+    try {
+      var sorted = sealed.sortedByTime();
+      replace(List.of(), Segment.write(segmentPath(sorted.minTime), sorted), sealed);
+    } catch (RuntimeException e) {
+      System.err.println("Could not write " + sealed.size + " detections, will retry: " + e);
+      synchronized (this) {
+        unwritten.add(sealed);
+      }
+    }
+  }
+
+  private void retryUnwritten() {
+    List<Rows> retried;
+    synchronized (this) {
+      retried = List.copyOf(unwritten);
+      unwritten.clear();
+    }
+    retried.forEach(this::persist);
+  }
+
+  private void maintain() {
+    try {
+      synchronized (this) {
+        if (!closed && System.currentTimeMillis() - rowsSince >= SEAL_MILLIS) {
+          seal();
+        }
+      }
+      retryUnwritten();
+      compact();
+    } catch (Throwable e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Merges runs of consecutive small segments that are old enough to receive no more rows.
+   */
+  private void compact() {
+    long oldEnough = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis())
+        - COMPACT_AFTER_MICROS;
+    List<Segment> ordered;
+    synchronized (this) {
+      ordered = segments;
+    }
+    var run = new ArrayList<Segment>();
+    int runRows = 0;
+    for (Segment segment : ordered) {
+      boolean fits = segment.minTime() < oldEnough && segment.rows() < COMPACTED_ROWS
+          && runRows + segment.rows() <= COMPACTED_ROWS;
+      if (!fits) {
+        merge(run);
+        run.clear();
+        runRows = 0;
+      }
+      if (segment.minTime() < oldEnough && segment.rows() < COMPACTED_ROWS) {
+        run.add(segment);
+        runRows += segment.rows();
+      }
+    }
+    merge(run);
+  }
+
+  private void merge(List<Segment> run) {
+    if (run.size() < 2) {
+      return;
+    }
+    var merged = new Rows();
+    run.forEach(segment -> segment.copyTo(merged));
+    var sorted = merged.sortedByTime();
+    replace(run, Segment.write(segmentPath(sorted.minTime), sorted), null);
+  }
+
+  /**
+   * Lists the added segment instead of the removed ones, in the manifest first and then in memory
+   * along with dropping the sealed rows it holds, before deleting the removed files. Only the
+   * writer thread calls this.
+   */
+  private void replace(List<Segment> removed, Segment added, Rows sealed) {
+    List<Segment> live;
+    synchronized (this) {
+      live = new ArrayList<>(segments);
+    }
+    live.removeAll(removed);
+    live.add(added);
+    live.sort(Comparator.comparingLong(Segment::minTime));
+    try {
+      writeManifest(live);
+    } catch (IOException e) {
+      delete(added.path());
+      throw new UncheckedIOException(e);
+    }
+    synchronized (this) {
+      segments = List.copyOf(live);
+      if (sealed != null) {
+        sealing.remove(sealed);
+      }
+    }
+    removed.forEach(segment -> delete(segment.path()));
+  }
+
+  /**
+   * Opens the segments listed by the manifest, reading it again when the writing process replaced
+   * some of them meanwhile.
+   */
+  private List<Segment> load() throws IOException {
+    var listed = readManifest();
+    while (true) {
+      var loaded = new ArrayList<Segment>();
+      for (String name : listed) {
+        var segment = openSegment(directory.resolve(name));
+        if (segment != null) {
+          loaded.add(segment);
+        }
+      }
+      var current = readManifest();
+      if (loaded.size() == listed.size() || current.equals(listed)) {
+        loaded.sort(Comparator.comparingLong(Segment::minTime));
+        return List.copyOf(loaded);
+      }
+      listed = current;
+    }
+  }
+
+  /**
+   * @return the live segment names, the directory listing for stores written before the manifest
+   */
+  private List<String> readManifest() throws IOException {
+    try {
+      return Files.readAllLines(directory.resolve(MANIFEST), UTF_8);
+    } catch (NoSuchFileException e) {
+      try (Stream<Path> files = Files.list(directory)) {
+        return files.map(file -> file.getFileName().toString())
+            .filter(name -> name.endsWith(Segment.EXTENSION))
+            .sorted()
+            .toList();
+      }
+    }
+  }
+
+  private void writeManifest(List<Segment> live) throws IOException {
+    var content = live.stream()
+        .map(segment -> segment.path().getFileName() + "\n")
+        .collect(Collectors.joining());
+    var temporary = directory.resolve(MANIFEST + TEMPORARY);
+    try (var channel = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, WRITE)) {
+      var buffer = UTF_8.encode(content);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(temporary, directory.resolve(MANIFEST), ATOMIC_MOVE);
+  }
+
+  /**
+   * Deletes what a crash left behind: temporary files and segments the manifest does not list.
+   */
+  private void deleteUnlisted(List<Segment> live) throws IOException {
+    Set<Path> listed = live.stream().map(Segment::path).collect(Collectors.toSet());
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : files.toList()) {
+        var name = file.getFileName().toString();
+        if (name.endsWith(TEMPORARY)
+            || name.endsWith(Segment.EXTENSION) && !listed.contains(file)) {
+          delete(file);
+        }
+      }
+    }
+  }
+
+  private static void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private Path segmentPath(long minTime) {
+    return directory.resolve(
+        "segment-" + minTime + "-" + nextSegment.getAndIncrement() + Segment.EXTENSION);
+  }
+
+  private Segment openSegment(Path file) {
+    try {
+      var segment = Segment.open(file);
+      var name = file.getFileName().toString();
+      long number = Long.parseLong(
+          name.substring(name.lastIndexOf('-') + 1, name.length() - Segment.EXTENSION.length()));
+      nextSegment.accumulateAndGet(number + 1, Math::max);
+      return segment;
+    } catch (UncheckedIOException e) {
+      if (!(e.getCause() instanceof NoSuchFileException)) {
+        throw e;
+      }
+      // Compacted away by the writing process meanwhile
+      return null;
+    }
+  }
+
+  /**
+   * Seals what is still in memory and waits for it to be written.
+   */
+  @Override
+  public void close() {
+    if (writer == null) {
+      return;
+    }
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      seal();
+      closed = true;
+    }
+    writer.execute(this::retryUnwritten);
+    writer.shutdown();
+    try {
+      writer.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "store[segments=" + segments.size() + ", sealing=" + sealing.size() + "]";
+  }
+}
@@ -0,0 +1,65 @@
+package org.rsultan.store;
+
+import static picocli.CommandLine.Help.Visibility.ALWAYS;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Prints the stored detections matching a query.
+ */
+@Command(name = "query", description = "Prints the detections kept by --store")
+public class QueryCommand implements Runnable {
+
+  @Option(names = {"--store"}, required = true, description = {
+      "The directory the detections were stored in"})
+  private Path storeDirectory;
+
+  @Option(names = {"--from"}, description = {
+      "The first local date time included, e.g. 2024-05-01T08:00, from the beginning if unset"})
+  private LocalDateTime from;
+
+  @Option(names = {"--to"}, description = {
+      "The first local date time excluded, until now if unset"})
+  private LocalDateTime to;
+
+  @Option(names = {"--class"}, description = {"Only the detections of this class"})
+  private String className;
+
+  @Option(names = {"--stream"}, description = {"Only the detections of this stream"})
+  private String stream;
+
+  @Option(names = {"--min-confidence"}, showDefaultValue = ALWAYS, description = {
+      "Only the detections at least this confident"})
+  private float minConfidence = 0;
+
+  @Override
+  public void run() {
+    var query = new DetectionQuery(from == null ? Long.MIN_VALUE : micros(from),
+        to == null ? Long.MAX_VALUE : micros(to), className, stream, minConfidence);
+    var store = DetectionStore.readOnly(storeDirectory);
+    long start = System.nanoTime();
+    var detections = store.query(query);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    for (StoredDetection detection : detections) {
+      var time = Instant.EPOCH.plus(detection.time(), ChronoUnit.MICROS);
+      System.out.println(LocalDateTime.ofInstant(time, ZoneId.systemDefault()) + " "
+          + detection.stream() + " #" + detection.frame() + " " + detection.className()
+          + (detection.trackId() < 0 ? "" : " #" + detection.trackId())
+          + " " + detection.confidence() + " [" + detection.x() + ", " + detection.y() + ", "
+          + detection.width() + ", " + detection.height() + "]");
+    }
+    System.out.println(detections.size() + " detections in " + elapsed + "ms");
+  }
+
+  private static long micros(LocalDateTime time) {
+    var instant = time.atZone(ZoneId.systemDefault()).toInstant();
+    return TimeUnit.SECONDS.toMicros(instant.getEpochSecond()) + instant.getNano() / 1000;
+  }
+}
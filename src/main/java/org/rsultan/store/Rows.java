@@ -0,0 +1,122 @@
+package org.rsultan.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Detections held in memory column by column, before they are written as a segment.
+ * <p>
+ * Stream and class names are stored once in dictionaries, rows refer to them by index.
+ */
+class Rows {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  final List<String> streamNames = new ArrayList<>();
+  final List<String> classNames = new ArrayList<>();
+  private final Map<String, Short> streamIds = new HashMap<>();
+  private final Map<String, Short> classIds = new HashMap<>();
+  long[] times = new long[INITIAL_CAPACITY];
+  long[] frames = new long[INITIAL_CAPACITY];
+  short[] streams = new short[INITIAL_CAPACITY];
+  short[] classes = new short[INITIAL_CAPACITY];
+  int[] tracks = new int[INITIAL_CAPACITY];
+  float[] confidences = new float[INITIAL_CAPACITY];
+  int[] boxes = new int[INITIAL_CAPACITY * 4];
+  int size;
+  long minTime = Long.MAX_VALUE;
+  long maxTime = Long.MIN_VALUE;
+
+  void add(StoredDetection detection) {
+    if (size == times.length) {
+      grow();
+    }
+    times[size] = detection.time();
+    frames[size] = detection.frame();
+    streams[size] = id(detection.stream(), streamNames, streamIds);
+    classes[size] = id(detection.className(), classNames, classIds);
+    tracks[size] = detection.trackId();
+    confidences[size] = detection.confidence();
+    boxes[4 * size] = detection.x();
+    boxes[4 * size + 1] = detection.y();
+    boxes[4 * size + 2] = detection.width();
+    boxes[4 * size + 3] = detection.height();
+    minTime = Math.min(minTime, detection.time());
+    maxTime = Math.max(maxTime, detection.time());
+    size++;
+  }
+
+  StoredDetection get(int row) {
+    return new StoredDetection(streamNames.get(streams[row]), times[row], frames[row],
+        classNames.get(classes[row]), tracks[row], confidences[row], boxes[4 * row],
+        boxes[4 * row + 1], boxes[4 * row + 2], boxes[4 * row + 3]);
+  }
+
+  void query(DetectionQuery query, Consumer<StoredDetection> results) {
+    if (size == 0 || maxTime < query.from() || minTime >= query.to()) {
+      return;
+    }
+    for (int row = 0; row < size; row++) {
+      if (query.matches(times[row], classNames.get(classes[row]),
+          streamNames.get(streams[row]), confidences[row])) {
+        results.accept(get(row));
+      }
+    }
+  }
+
+  /**
+   * @return the rows in time order
+   */
+  Rows sortedByTime() {
+    var order = IntStream.range(0, size).boxed()
+        .sorted((left, right) -> Long.compare(times[left], times[right]))
+        .mapToInt(Integer::intValue).toArray();
+    var sorted = new Rows();
+    for (int row : order) {
+      sorted.add(get(row));
+    }
+    return sorted;
+  }
+
+  /**
+   * @return for each class the ascending rows of that class
+   */
+  int[][] postings() {
+    var counts = new int[classNames.size()];
+    for (int row = 0; row < size; row++) {
+      counts[classes[row]]++;
+    }
+    var postings = new int[classNames.size()][];
+    for (int classId = 0; classId < postings.length; classId++) {
+      postings[classId] = new int[counts[classId]];
+    }
+    Arrays.fill(counts, 0);
+    for (int row = 0; row < size; row++) {
+      postings[classes[row]][counts[classes[row]]++] = row;
+    }
+    return postings;
+  }
+
+  private static short id(String name, List<String> names, Map<String, Short> ids) {
+    return ids.computeIfAbsent(name, key -> {
+      names.add(key);
+      return (short) (names.size() - 1);
+    });
+  }
+
+  private void grow() {
+    int capacity = times.length * 2;
+    times = Arrays.copyOf(times, capacity);
+    frames = Arrays.copyOf(frames, capacity);
+    streams = Arrays.copyOf(streams, capacity);
+    classes = Arrays.copyOf(classes, capacity);
+    tracks = Arrays.copyOf(tracks, capacity);
+    confidences = Arrays.copyOf(confidences, capacity);
+    boxes = Arrays.copyOf(boxes, capacity * 4);
+  }
+}
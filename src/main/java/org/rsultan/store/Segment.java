@@ -0,0 +1,276 @@
+package org.rsultan.store;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An immutable file of detections sorted by time, read through a memory mapping.
+ * <p>
+ * Every column is stored contiguously, the time column doubling as the time index: a range is
+ * found by binary search. Each class has a posting list of its ascending rows, so that a class
+ * query within a range only visits the rows of that class. Layout, big endian:
+ * <pre>
+ * int magic, int version, int rows, long minTime, long maxTime
+ * short count then (short length, UTF-8 bytes) for the stream names, then the class names
+ * long times[rows], long frames[rows], short streams[rows], short classes[rows],
+ * int tracks[rows], float confidences[rows], int boxes[4 * rows]
+ * for each class: int count, int rows[count]
+ * </pre>
+ */
+class Segment {
+
+  static final String EXTENSION = ".seg";
+  private static final int MAGIC = 0x44534547;
+  private static final int VERSION = 1;
+
+  private final Path path;
+  private final MappedByteBuffer data;
+  private final int rows;
+  private final long minTime;
+  private final long maxTime;
+  private final List<String> streamNames;
+  private final List<String> classNames;
+  private final int times;
+  private final int frames;
+  private final int streams;
+  private final int classes;
+  private final int tracks;
+  private final int confidences;
+  private final int boxes;
+  private final int[] postings;
+
+  private Segment(Path path) throws IOException {
+    this.path = path;
+    try (var channel = FileChannel.open(path, READ)) {
+      data = channel.map(MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+      throw new IOException("Not a detection segment: " + path);
+    }
+    rows = data.getInt(8);
+    minTime = data.getLong(12);
+    maxTime = data.getLong(20);
+    var header = data.duplicate().position(28);
+    streamNames = readNames(header);
+    classNames = readNames(header);
+    times = header.position();
+    frames = times + 8 * rows;
+    streams = frames + 8 * rows;
+    classes = streams + 2 * rows;
+    tracks = classes + 2 * rows;
+    confidences = tracks + 4 * rows;
+    boxes = confidences + 4 * rows;
+    postings = new int[classNames.size()];
+    int offset = boxes + 16 * rows;
+    for (int classId = 0; classId < postings.length; classId++) {
+      postings[classId] = offset;
+      offset += 4 + 4 * data.getInt(offset);
+    }
+  }
+
+  static Segment open(Path path) {
+    try {
+      return new Segment(path);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Writes the rows, sorted by time, next to the final path then moves the file in place so that
+   * a segment is either complete or absent.
+   */
+  static Segment write(Path path, Rows sorted) {
+    var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    var postings = sorted.postings();
+    try (var channel = FileChannel.open(temporary, CREATE_NEW, WRITE)) {
+      final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(sorted.size)
+          .putLong(sorted.minTime).putLong(sorted.maxTime);
+      writeNames(channel, buffer, sorted.streamNames);
+      writeNames(channel, buffer, sorted.classNames);
+      for (int row = 0; row < sorted.size; row++) {
+        ensure(channel, buffer, 8).putLong(sorted.times[row]);
+      }
+      for (int row = 0; row < sorted.size; row++) {
+        ensure(channel, buffer, 8).putLong(sorted.frames[row]);
+      }
+      for (int row = 0; row < sorted.size; row++) {
+        ensure(channel, buffer, 2).putShort(sorted.streams[row]);
+      }
+      for (int row = 0; row < sorted.size; row++) {
+        ensure(channel, buffer, 2).putShort(sorted.classes[row]);
+      }
+      for (int row = 0; row < sorted.size; row++) {
+        ensure(channel, buffer, 4).putInt(sorted.tracks[row]);
+      }
+      for (int row = 0; row < sorted.size; row++) {
+        ensure(channel, buffer, 4).putFloat(sorted.confidences[row]);
+      }
+      for (int i = 0; i < 4 * sorted.size; i++) {
+        ensure(channel, buffer, 4).putInt(sorted.boxes[i]);
+      }
+      for (int[] posting : postings) {
+        ensure(channel, buffer, 4).putInt(posting.length);
+        for (int row : posting) {
+          ensure(channel, buffer, 4).putInt(row);
+        }
+      }
+      drain(channel, buffer);
+      channel.force(true);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    try {
+      Files.move(temporary, path, ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return open(path);
+  }
+
+  void query(DetectionQuery query, Consumer<StoredDetection> results) {
+    if (rows == 0 || maxTime < query.from() || minTime >= query.to()) {
+      return;
+    }
+    int first = firstRowFrom(query.from());
+    int end = firstRowFrom(query.to());
+    if (query.className() == null) {
+      for (int row = first; row < end; row++) {
+        accept(query, row, results);
+      }
+      return;
+    }
+
+    int classId = classNames.indexOf(query.className());
+    if (classId < 0) {
+      return;
+    }
+    int count = data.getInt(postings[classId]);
+    int start = postings[classId] + 4;
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (data.getInt(start + 4 * middle) < first) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    for (int i = low; i < count; i++) {
+      int row = data.getInt(start + 4 * i);
+      if (row >= end) {
+        break;
+      }
+      accept(query, row, results);
+    }
+  }
+
+  private void accept(DetectionQuery query, int row, Consumer<StoredDetection> results) {
+    float confidence = data.getFloat(confidences + 4 * row);
+    var stream = streamNames.get(data.getShort(streams + 2 * row));
+    if (confidence >= query.minConfidence()
+        && (query.stream() == null || query.stream().equals(stream))) {
+      results.accept(get(row));
+    }
+  }
+
+  /**
+   * @return the first row at or after the given time, the row count if there is none
+   */
+  private int firstRowFrom(long time) {
+    int low = 0;
+    int high = rows;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (data.getLong(times + 8 * middle) < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private StoredDetection get(int row) {
+    int box = boxes + 16 * row;
+    return new StoredDetection(streamNames.get(data.getShort(streams + 2 * row)),
+        data.getLong(times + 8 * row), data.getLong(frames + 8 * row),
+        classNames.get(data.getShort(classes + 2 * row)), data.getInt(tracks + 4 * row),
+        data.getFloat(confidences + 4 * row), data.getInt(box), data.getInt(box + 4),
+        data.getInt(box + 8), data.getInt(box + 12));
+  }
+
+  /**
+   * Adds every row of this segment to the given ones, for compaction.
+   */
+  void copyTo(Rows target) {
+    for (int row = 0; row < rows; row++) {
+      target.add(get(row));
+    }
+  }
+
+  Path path() {
+    return path;
+  }
+
+  int rows() {
+    return rows;
+  }
+
+  long minTime() {
+    return minTime;
+  }
+
+  private static List<String> readNames(ByteBuffer header) {
+    int count = header.getShort();
+    var names = new ArrayList<String>(count);
+    for (int i = 0; i < count; i++) {
+      var bytes = new byte[header.getShort()];
+      header.get(bytes);
+      names.add(new String(bytes, UTF_8));
+    }
+    return names;
+  }
+
+  private static void writeNames(FileChannel channel, ByteBuffer buffer, List<String> names)
+      throws IOException {
+    ensure(channel, buffer, 2).putShort((short) names.size());
+    for (String name : names) {
+      var bytes = name.getBytes(UTF_8);
+      ensure(channel, buffer, 2 + bytes.length).putShort((short) bytes.length).put(bytes);
+    }
+  }
+
+  private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int bytes)
+      throws IOException {
+    if (buffer.remaining() < bytes) {
+      drain(channel, buffer);
+    }
+    return buffer;
+  }
+
+  private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
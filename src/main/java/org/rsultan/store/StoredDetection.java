@@ -0,0 +1,12 @@
+package org.rsultan.store;
+
+/**
+ * A detection read back from the store.
+ *
+ * @param time the wall clock time of the frame, in microseconds since the epoch
+ */
+public record StoredDetection(String stream, long time, long frame, String className,
+                              int trackId, float confidence, int x, int y, int width,
+                              int height) {
+
+}
@@ -0,0 +1,148 @@
+package org.rsultan.utils;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.bytedeco.opencv.global.opencv_core.addWeighted;
+import static org.bytedeco.opencv.global.opencv_imgproc.getTextSize;
+import static org.bytedeco.opencv.global.opencv_imgproc.putText;
+import static org.opencv.imgproc.Imgproc.FONT_HERSHEY_DUPLEX;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Point;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Draws detections by blending each box region only, labels are rendered once per class and
+ * confidence percent then stamped on the frame, the same goes for the identifiers of the most
+ * recent tracks.
+ * <p>
+ * Not thread safe, every drawing thread needs its own renderer.
+ */
+public class OverlayRenderer {
+
+  private static final double FONT_SCALE = 0.5;
+  private static final int TEXT_OFFSET = 10;
+  private static final double ALPHA = 0.5d;
+  private static final int CONFIDENCE_BUCKETS = 101;
+  private static final int TRACK_SPRITES = 256;
+
+  private final Mat scratch = new Mat();
+  private final Mat textColor = new Mat(new Scalar(0));
+  private final Rect region = new Rect();
+  private final Rect spriteRegion = new Rect();
+  private Sprite[][] sprites = new Sprite[0][];
+  private final Map<Integer, Sprite> trackSprites =
+      new LinkedHashMap<>(TRACK_SPRITES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Sprite> eldest) {
+          if (size() > TRACK_SPRITES) {
+            eldest.getValue().mask().close();
+            return true;
+          }
+          return false;
+        }
+      };
+
+  public Mat draw(List<DetectionResult> results, Mat frame) {
+    for (DetectionResult result : results) {
+      blendBox(frame, result);
+      stampLabel(frame, result);
+      if (result.trackId() != DetectionResult.UNTRACKED) {
+        stampTrack(frame, result);
+      }
+    }
+    return frame;
+  }
+
+  private void blendBox(Mat frame, DetectionResult result) {
+    if (!clip(frame, result.x(), result.y(), result.width(), result.height(), region)) {
+      return;
+    }
+    if (scratch.rows() < frame.rows() || scratch.cols() < frame.cols()
+        || scratch.type() != frame.type()) {
+      scratch.create(frame.rows(), frame.cols(), frame.type());
+    }
+    spriteRegion.x(0).y(0).width(region.width()).height(region.height());
+    try (Mat box = frame.apply(region); Mat fill = scratch.apply(spriteRegion)) {
+      fill.put(result.color());
+      addWeighted(fill, ALPHA, box, 1 - ALPHA, 0.0, box);
+    }
+  }
+
+  private void stampLabel(Mat frame, DetectionResult result) {
+    var sprite = sprite(result);
+    stamp(frame, sprite, result.x(), result.y() + TEXT_OFFSET - sprite.ascent());
+  }
+
+  /**
+   * Stamps the track identifier in the bottom left corner of the box.
+   */
+  private void stampTrack(Mat frame, DetectionResult result) {
+    var sprite = trackSprites.computeIfAbsent(result.trackId(),
+        trackId -> Sprite.render("#" + trackId));
+    stamp(frame, sprite, result.x(), result.y() + result.height() - sprite.mask().rows());
+  }
+
+  private void stamp(Mat frame, Sprite sprite, int left, int top) {
+    if (!clip(frame, left, top, sprite.mask().cols(), sprite.mask().rows(), region)) {
+      return;
+    }
+    spriteRegion.x(region.x() - left).y(region.y() - top)
+        .width(region.width()).height(region.height());
+    try (Mat target = frame.apply(region); Mat mask = sprite.mask().apply(spriteRegion)) {
+      target.setTo(textColor, mask);
+    }
+  }
+
+  private Sprite sprite(DetectionResult result) {
+    int classId = result.classId();
+    if (classId >= sprites.length) {
+      sprites = Arrays.copyOf(sprites, classId + 1);
+    }
+    if (sprites[classId] == null) {
+      sprites[classId] = new Sprite[CONFIDENCE_BUCKETS];
+    }
+    int percent = Math.max(0, Math.min(100, Math.round(result.confidence() * 100f)));
+    var sprite = sprites[classId][percent];
+    if (sprite == null) {
+      sprite = Sprite.render(result.className() + " - " + percent + "%");
+      sprites[classId][percent] = sprite;
+    }
+    return sprite;
+  }
+
+  /**
+   * Intersects the given box with the frame.
+   *
+   * @return false if nothing of the box is visible
+   */
+  private static boolean clip(Mat frame, int x, int y, int width, int height, Rect clipped) {
+    int left = Math.max(0, x);
+    int top = Math.max(0, y);
+    int right = Math.min(frame.cols(), x + width);
+    int bottom = Math.min(frame.rows(), y + height);
+    if (right <= left || bottom <= top) {
+      return false;
+    }
+    clipped.x(left).y(top).width(right - left).height(bottom - top);
+    return true;
+  }
+
+  private record Sprite(Mat mask, int ascent) {
+
+    private static Sprite render(String label) {
+      int[] baseline = new int[1];
+      Size size = getTextSize(label, FONT_HERSHEY_DUPLEX, FONT_SCALE, 1, baseline);
+      var mask = new Mat(size.height() + baseline[0], size.width(), CV_8UC1, new Scalar(0));
+      putText(mask, label, new Point(0, size.height()), FONT_HERSHEY_DUPLEX, FONT_SCALE,
+          new Scalar(255));
+      return new Sprite(mask, size.height());
+    }
+  }
+}
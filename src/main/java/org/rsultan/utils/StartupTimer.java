@@ -0,0 +1,51 @@
+package org.rsultan.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Collects how long each startup phase took, phases may run concurrently.
+ */
+public class StartupTimer {
+
+  private final long start = System.nanoTime();
+  private final Map<String, Long> phases = new LinkedHashMap<>();
+
+  public <T> T time(String phase, Supplier<T> work) {
+    long begin = System.nanoTime();
+    try {
+      return work.get();
+    } finally {
+      record(phase, System.nanoTime() - begin);
+    }
+  }
+
+  public void time(String phase, Runnable work) {
+    time(phase, () -> {
+      work.run();
+      return null;
+    });
+  }
+
+  /**
+   * Records the time elapsed since the timer was created.
+   */
+  public void mark(String phase) {
+    record(phase, System.nanoTime() - start);
+  }
+
+  private synchronized void record(String phase, long nanos) {
+    phases.put(phase, nanos);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return phases.entrySet().stream()
+        .map(phase -> phase.getKey() + "=" + TimeUnit.NANOSECONDS.toMillis(phase.getValue())
+            + "ms")
+        .collect(Collectors.joining(", ", "[startup] ", ""));
+  }
+}
@@ -0,0 +1,149 @@
+package org.rsultan.video;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+/**
+ * Native buffers keyed by their shape, handed back and forth instead of being allocated and
+ * freed for every frame.
+ * <p>
+ * Buffers are borrowed with {@link #acquire(Shape)} and given back with {@link #release(Mat)},
+ * the borrower must not reallocate them in between. At most {@code maxIdlePerShape} buffers of a
+ * given shape are kept aside, the others are freed when released.
+ */
+public class BufferPool {
+
+  private final int maxIdlePerShape;
+  private final Map<Shape, Idle> idle = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final AtomicLong residentBytes = new AtomicLong();
+
+  public BufferPool(int maxIdlePerShape) {
+    this.maxIdlePerShape = maxIdlePerShape;
+  }
+
+  public Mat acquire(Shape shape) {
+    var buffers = idle.get(shape);
+    var mat = buffers == null ? null : buffers.poll();
+    if (mat != null) {
+      hits.increment();
+      return mat;
+    }
+    misses.increment();
+    residentBytes.addAndGet(shape.bytes());
+    return new Mat(shape.sizes(), shape.type());
+  }
+
+  public void release(Mat mat) {
+    if (mat == null || mat.isNull()) {
+      return;
+    }
+    var shape = Shape.of(mat);
+    if (!idle.computeIfAbsent(shape, key -> new Idle()).offer(mat, maxIdlePerShape)) {
+      residentBytes.addAndGet(-shape.bytes());
+      mat.close();
+    }
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the bytes allocated by this pool and not freed yet, borrowed or idle
+   */
+  public long residentBytes() {
+    return residentBytes.get();
+  }
+
+  @Override
+  public String toString() {
+    return "buffers[hits=" + hits() + ", misses=" + misses()
+        + ", resident=" + residentBytes() / (1024 * 1024) + "MB]";
+  }
+
+  /**
+   * The dimensions and OpenCV type of a buffer.
+   */
+  public record Shape(int type, int... sizes) {
+
+    public static Shape of(int rows, int cols, int type) {
+      return new Shape(type, rows, cols);
+    }
+
+    public static Shape of(Mat mat) {
+      var sizes = new int[mat.dims()];
+      for (int i = 0; i < sizes.length; i++) {
+        sizes[i] = mat.size(i);
+      }
+      return new Shape(mat.type(), sizes);
+    }
+
+    public long bytes() {
+      long bytes = (1L + (type >> 3)) * elementSize(type & 7);
+      for (int size : sizes) {
+        bytes *= size;
+      }
+      return bytes;
+    }
+
+    private static int elementSize(int depth) {
+      return switch (depth) {
+        case 0, 1 -> 1;
+        case 2, 3, 7 -> 2;
+        case 4, 5 -> 4;
+        default -> 8;
+      };
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Shape shape && type == shape.type
+          && Arrays.equals(sizes, shape.sizes);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * type + Arrays.hashCode(sizes);
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.toString(sizes) + "@" + type;
+    }
+  }
+
+  private static final class Idle {
+
+    private final Queue<Mat> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger count = new AtomicInteger();
+
+    private Mat poll() {
+      var mat = buffers.poll();
+      if (mat != null) {
+        count.decrementAndGet();
+      }
+      return mat;
+    }
+
+    private boolean offer(Mat mat, int max) {
+      if (count.incrementAndGet() > max) {
+        count.decrementAndGet();
+        return false;
+      }
+      return buffers.offer(mat);
+    }
+  }
+}
@@ -12,6 +12,8 @@ public interface Constants {
   String WIDTH = "width";
   String HEIGHT = "height";
   String INPUT_TYPE = "source";
+  String TYPE = "type";
+  String STREAMS = "streams";
 
   String BITRATE = "bitrate";
   String TUNE = "tune";
@@ -21,4 +23,14 @@ public interface Constants {
   String FORMAT = "format";
   String FRAME_RATE = "frame_rate";
   String GOP = "gop";
+  String QUALITY = "quality";
+  String SKIP_BACKLOG = "skip_backlog";
+  String LOWRES = "lowres";
+  String LOW_LATENCY = "low_latency";
+  String PROBE_SIZE = "probe_size";
+  String ANALYZE_DURATION = "analyze_duration";
+  String TIMEOUT = "timeout";
+  String RECONNECT_ATTEMPTS = "reconnect_attempts";
+  String RECONNECT_DELAY = "reconnect_delay";
+  String RECONNECT_MAX_DELAY = "reconnect_max_delay";
 }
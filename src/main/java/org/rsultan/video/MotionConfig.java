@@ -0,0 +1,14 @@
+package org.rsultan.video;
+
+/**
+ * Motion gating settings.
+ *
+ * @param width          the width of the grayscale copy motion is detected on
+ * @param pixelThreshold the grey level change above which a pixel has moved
+ * @param area           the fraction of moved pixels above which the frame is inferred
+ * @param maxGapMillis   the longest time a static scene goes without inference, 0 never forces
+ *                       one
+ */
+public record MotionConfig(int width, int pixelThreshold, float area, long maxGapMillis) {
+
+}
@@ -0,0 +1,117 @@
+package org.rsultan.video;
+
+import static org.bytedeco.opencv.global.opencv_core.absdiff;
+import static org.bytedeco.opencv.global.opencv_core.countNonZero;
+import static org.bytedeco.opencv.global.opencv_imgproc.COLOR_BGR2GRAY;
+import static org.bytedeco.opencv.global.opencv_imgproc.GaussianBlur;
+import static org.bytedeco.opencv.global.opencv_imgproc.INTER_AREA;
+import static org.bytedeco.opencv.global.opencv_imgproc.THRESH_BINARY;
+import static org.bytedeco.opencv.global.opencv_imgproc.cvtColor;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+import static org.bytedeco.opencv.global.opencv_imgproc.threshold;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+
+/**
+ * Tells whether a frame is worth a detection, by differencing a small blurred grayscale copy of
+ * it against the copy of the last frame that was let through.
+ * <p>
+ * Comparing against the last inferred frame rather than the previous one also catches slow
+ * movements, the maximum gap refreshes detections of a scene that stays still. Instances belong
+ * to a single stream and are not meant to be shared between threads.
+ */
+public class MotionGate implements AutoCloseable {
+
+  private static final Size BLUR = new Size(5, 5);
+
+  private final MotionConfig config;
+  private final long maxGapNanos;
+  private final Mat scaled = new Mat();
+  private final Mat difference = new Mat();
+  private final AtomicLong moved = new AtomicLong();
+  private final AtomicLong forced = new AtomicLong();
+  private final AtomicLong gated = new AtomicLong();
+
+  private Mat current = new Mat();
+  private Mat reference = new Mat();
+  private Size size;
+  private long lastPassed;
+
+  public MotionGate(MotionConfig config) {
+    this.config = config;
+    this.maxGapNanos = TimeUnit.MILLISECONDS.toNanos(config.maxGapMillis());
+  }
+
+  /**
+   * @param frame a BGR frame
+   * @return true when the frame should be inferred
+   */
+  public boolean test(Mat frame) {
+    shrink(frame);
+    long now = System.nanoTime();
+    boolean passes;
+    if (reference.empty() || reference.cols() != current.cols()
+        || reference.rows() != current.rows()) {
+      passes = true;
+      moved.incrementAndGet();
+    } else if (hasMoved()) {
+      passes = true;
+      moved.incrementAndGet();
+    } else if (maxGapNanos > 0 && now - lastPassed >= maxGapNanos) {
+      passes = true;
+      forced.incrementAndGet();
+    } else {
+      passes = false;
+      gated.incrementAndGet();
+    }
+
+    if (passes) {
+      var swap = reference;
+      reference = current;
+      current = swap;
+      lastPassed = now;
+    }
+    return passes;
+  }
+
+  private void shrink(Mat frame) {
+    if (size == null || size.width() != config.width()
+        || size.height() != scaledHeight(frame)) {
+      size = new Size(config.width(), scaledHeight(frame));
+    }
+    resize(frame, scaled, size, 0, 0, INTER_AREA);
+    cvtColor(scaled, current, COLOR_BGR2GRAY);
+    GaussianBlur(current, current, BLUR, 0);
+  }
+
+  private int scaledHeight(Mat frame) {
+    return Math.max(1, Math.round((float) frame.rows() * config.width() / frame.cols()));
+  }
+
+  private boolean hasMoved() {
+    absdiff(current, reference, difference);
+    threshold(difference, difference, config.pixelThreshold(), 255, THRESH_BINARY);
+    return countNonZero(difference) > config.area() * difference.total();
+  }
+
+  public long gated() {
+    return gated.get();
+  }
+
+  @Override
+  public void close() {
+    scaled.release();
+    difference.release();
+    current.release();
+    reference.release();
+  }
+
+  @Override
+  public String toString() {
+    return "motion[moved=" + moved.get() + ", forced=" + forced.get() + ", gated=" + gated.get()
+        + "]";
+  }
+}
@@ -0,0 +1,11 @@
+package org.rsultan.video;
+
+import java.util.Map;
+import org.rsultan.video.diffusion.OutputType;
+
+/**
+ * One output of a stream, the properties are the ones given to {@code Diffusion.get}.
+ */
+public record OutputDefinition(String name, OutputType type, Map<String, Object> properties) {
+
+}
@@ -0,0 +1,118 @@
+package org.rsultan.video;
+
+import static org.rsultan.video.Constants.STREAMS;
+import static org.rsultan.video.Constants.TYPE;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+import org.rsultan.video.diffusion.OutputType;
+import org.rsultan.video.source.InputType;
+
+/**
+ * One input/output pair, the properties are the ones given to {@code Source.get} and
+ * {@code Diffusion.get}. The same annotated frames may also go to extra outputs.
+ */
+public record StreamDefinition(String name,
+                               InputType inputType, Map<String, Object> inputProperties,
+                               OutputType outputType, Map<String, Object> outputProperties,
+                               List<OutputDefinition> extraOutputs) {
+
+  /**
+   * @return the main output followed by the extra ones
+   */
+  public List<OutputDefinition> outputs() {
+    return Stream.concat(Stream.of(new OutputDefinition(name, outputType, outputProperties)),
+        extraOutputs.stream()).toList();
+  }
+
+  /**
+   * Reads a properties file listing the streams, eg:
+   * <pre>
+   * streams=entrance,parking
+   * entrance.in.type=stream
+   * entrance.in.address=rtmp://camera-1/live
+   * entrance.out.type=stream
+   * entrance.out.address=rtmp://localhost:1935/stream/entrance
+   * parking.in.address=rtmp://camera-2/live
+   * parking.out.width=640
+   * parking.out.archive.address=parking.mp4
+   * parking.out.archive.format=mp4
+   * </pre>
+   * Any property a stream does not set is taken from the given defaults, extra outputs such as
+   * {@code archive} take the properties they do not set from the stream output.
+   */
+  public static List<StreamDefinition> load(Path path, StreamDefinition defaults) {
+    var properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(path)) {
+      properties.load(reader);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    var names = properties.getProperty(STREAMS);
+    if (names == null || names.isBlank()) {
+      throw new IllegalArgumentException("No '" + STREAMS + "' property found in " + path);
+    }
+    return Arrays.stream(names.split(",")).map(String::trim).filter(name -> !name.isEmpty())
+        .map(name -> {
+          var outputType = type(properties, name + ".out.", OutputType.class,
+              defaults.outputType());
+          var outputProperties = merge(properties, name + ".out.", defaults.outputProperties());
+          return new StreamDefinition(name,
+              type(properties, name + ".in.", InputType.class, defaults.inputType()),
+              merge(properties, name + ".in.", defaults.inputProperties()),
+              outputType, outputProperties,
+              extraOutputs(properties, name + ".out.", outputType, outputProperties));
+        })
+        .toList();
+  }
+
+  /**
+   * Reads the outputs given as {@code <output>.<property>} entries after the prefix, any
+   * property an output does not set is taken from the given defaults.
+   */
+  public static List<OutputDefinition> extraOutputs(Properties properties, String prefix,
+      OutputType defaultType, Map<String, Object> defaults) {
+    return properties.stringPropertyNames().stream()
+        .filter(key -> key.startsWith(prefix))
+        .map(key -> key.substring(prefix.length()))
+        .filter(key -> key.indexOf('.') > 0)
+        .map(key -> key.substring(0, key.indexOf('.')))
+        .distinct()
+        .sorted()
+        .map(output -> new OutputDefinition(output,
+            type(properties, prefix + output + ".", OutputType.class, defaultType),
+            merge(properties, prefix + output + ".", defaults)))
+        .toList();
+  }
+
+  private static <E extends Enum<E>> E type(Properties properties, String prefix, Class<E> type,
+      E defaultType) {
+    var value = properties.getProperty(prefix + TYPE);
+    return value == null ? defaultType : Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+  }
+
+  private static Map<String, Object> merge(Properties properties, String prefix,
+      Map<String, Object> defaults) {
+    var merged = new HashMap<>(defaults);
+    properties.stringPropertyNames().stream()
+        .filter(key -> key.startsWith(prefix) && !key.equals(prefix + TYPE))
+        .filter(key -> key.indexOf('.', prefix.length()) < 0)
+        .forEach(key -> {
+          var property = key.substring(prefix.length());
+          var value = properties.getProperty(key).trim();
+          var defaultValue = defaults.get(property);
+          merged.put(property, defaultValue instanceof Integer ? Integer.valueOf(value)
+              : defaultValue instanceof Boolean ? Boolean.valueOf(value) : value);
+        });
+    return merged;
+  }
+}
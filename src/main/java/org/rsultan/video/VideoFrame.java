@@ -0,0 +1,13 @@
+package org.rsultan.video;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+/**
+ * A captured frame travelling through the pipeline, the mat shares the frame pixels.
+ *
+ * @param number the position of the frame among the ones grabbed from the source
+ */
+public record VideoFrame(Frame frame, Mat mat, long number) {
+
+}
@@ -0,0 +1,98 @@
+package org.rsultan.video.diffusion;
+
+import static org.rsultan.video.Constants.ADDRESS;
+import static org.rsultan.video.Constants.FORMAT;
+import static org.rsultan.video.Constants.INPUT_TYPE;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameRecorder.Exception;
+import org.rsultan.video.OutputDefinition;
+
+/**
+ * Shows the same frames on several outputs.
+ * <p>
+ * Stream outputs sharing their encoding settings are encoded once: FFmpeg's tee muxer writes the
+ * packets to each of their addresses, an address failing is then left out without stopping the
+ * others.
+ */
+public class CompositeDiffusion implements Diffusion {
+
+  private static final String TEE_FORMAT = "tee";
+
+  private final List<Diffusion> diffusions;
+
+  public CompositeDiffusion(List<Diffusion> diffusions) {
+    this.diffusions = List.copyOf(diffusions);
+  }
+
+  static Diffusion of(List<OutputDefinition> outputs) {
+    var diffusions = new ArrayList<Diffusion>();
+    var profiles = new LinkedHashMap<Map<String, Object>, List<OutputDefinition>>();
+    for (OutputDefinition output : outputs) {
+      if (output.type() == OutputType.STREAM) {
+        profiles.computeIfAbsent(profile(output), profile -> new ArrayList<>()).add(output);
+      } else {
+        diffusions.add(Diffusion.get(output.type(), output.properties()));
+      }
+    }
+    for (List<OutputDefinition> sharing : profiles.values()) {
+      diffusions.add(Diffusion.get(OutputType.STREAM, sharing.size() == 1
+          ? sharing.get(0).properties() : tee(sharing)));
+    }
+    return diffusions.size() == 1 ? diffusions.get(0) : new CompositeDiffusion(diffusions);
+  }
+
+  /**
+   * @return the properties of the output apart from where and how it is written
+   */
+  private static Map<String, Object> profile(OutputDefinition output) {
+    var profile = new HashMap<>(output.properties());
+    profile.remove(ADDRESS);
+    profile.remove(FORMAT);
+    profile.remove(INPUT_TYPE);
+    return profile;
+  }
+
+  private static Map<String, Object> tee(List<OutputDefinition> sharing) {
+    var properties = new HashMap<>(sharing.get(0).properties());
+    properties.put(FORMAT, TEE_FORMAT);
+    properties.put(ADDRESS, sharing.stream()
+        .map(output -> "[f=" + output.properties().get(FORMAT) + ":onfail=ignore]"
+            + output.properties().get(ADDRESS))
+        .collect(Collectors.joining("|")));
+    return properties;
+  }
+
+  @Override
+  public void show(Frame frame) {
+    for (Diffusion diffusion : diffusions) {
+      diffusion.show(frame);
+    }
+  }
+
+  @Override
+  public void stop() throws Exception {
+    Exception failure = null;
+    for (Diffusion diffusion : diffusions) {
+      try {
+        diffusion.stop();
+      } catch (Exception e) {
+        failure = failure == null ? e : failure;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return diffusions.stream().map(Object::toString).collect(Collectors.joining(" "));
+  }
+}
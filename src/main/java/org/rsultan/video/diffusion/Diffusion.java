@@ -9,15 +9,19 @@ import static org.rsultan.video.Constants.FRAME_RATE;
 import static org.rsultan.video.Constants.GOP;
 import static org.rsultan.video.Constants.HEIGHT;
 import static org.rsultan.video.Constants.PRESET;
+import static org.rsultan.video.Constants.QUALITY;
 import static org.rsultan.video.Constants.INPUT_TYPE;
 import static org.rsultan.video.Constants.TUNE;
 import static org.rsultan.video.Constants.WIDTH;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.FrameRecorder.Exception;
+import org.rsultan.video.OutputDefinition;
 import org.rsultan.video.diffusion.config.DirectConfiguration;
+import org.rsultan.video.diffusion.config.MjpegConfiguration;
 import org.rsultan.video.diffusion.config.StreamConfiguration;
 import org.rsultan.video.source.Source;
 
@@ -27,6 +31,13 @@ public interface Diffusion {
 
   void stop() throws Exception;
 
+  /**
+   * Builds every output of a stream, see {@link CompositeDiffusion}.
+   */
+  static Diffusion get(List<OutputDefinition> outputs) {
+    return CompositeDiffusion.of(outputs);
+  }
+
   static Diffusion get(OutputType type, Map<String, ?> properties) {
     return switch (type) {
       case DIRECT -> new DirectDiffusion(
@@ -51,6 +62,15 @@ public interface Diffusion {
               .setGopSizeInFrames((int) properties.get(GOP))
               .build()
       );
+      case MJPEG -> {
+        var configuration = new MjpegConfiguration()
+            .setAddress((String) properties.get(ADDRESS))
+            .setWidth((int) properties.get(WIDTH))
+            .setHeight((int) properties.get(HEIGHT))
+            .setQuality((int) properties.get(QUALITY));
+        yield new MjpegDiffusion(configuration.build(), configuration.getPath(),
+            configuration.getWidth(), configuration.getHeight(), configuration.getQuality());
+      }
     };
   }
 }
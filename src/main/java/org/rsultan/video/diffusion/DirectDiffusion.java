@@ -8,6 +8,7 @@ import org.rsultan.exception.VideoEndedException;
 public class DirectDiffusion implements Diffusion {
 
   private final CanvasFrame canvasFrame;
+  private volatile long shown;
 
   public DirectDiffusion(CanvasFrame canvasFrame) {
     this.canvasFrame = canvasFrame;
@@ -16,6 +17,7 @@ public class DirectDiffusion implements Diffusion {
   public void show(Frame frame) {
     if (canvasFrame.isVisible()) {
       canvasFrame.showImage(frame);
+      shown++;
     } else {
       throw new VideoEndedException("Video has ended");
     }
@@ -25,4 +27,9 @@ public class DirectDiffusion implements Diffusion {
   public void stop() throws Exception {
     canvasFrame.setVisible(false);
   }
+
+  @Override
+  public String toString() {
+    return "display[shown=" + shown + "]";
+  }
 }
@@ -0,0 +1,60 @@
+package org.rsultan.video.diffusion;
+
+/**
+ * Maps the frames of a stream to the slots of a constant frame rate output.
+ * <p>
+ * Time advances with the timestamps of the source, the wall clock takes over whenever they stall,
+ * go backwards or leap, as with sources that do not provide any. A frame landing in a slot
+ * already filled is dropped, a frame arriving after empty slots fills them as well, unless the
+ * gap is too long and the output jumps instead.
+ */
+class FramePacer {
+
+  private static final long MAX_SOURCE_GAP_MICROS = 5_000_000;
+
+  private final double frameRate;
+  private final int maxRepeats;
+  private boolean started;
+  private long mediaTime;
+  private long lastTimestamp;
+  private long lastWallTime;
+  private long lastSlot = -1;
+  private long firstSlot;
+
+  /**
+   * @param maxRepeats the number of slots a single frame may fill
+   */
+  FramePacer(double frameRate, int maxRepeats) {
+    this.frameRate = frameRate;
+    this.maxRepeats = maxRepeats;
+  }
+
+  /**
+   * @param timestamp the source timestamp of the frame, in microseconds
+   * @param wallTime  the current time, in microseconds
+   * @return the number of output frames the frame fills from {@link #firstSlot()}, 0 to drop it
+   */
+  int advance(long timestamp, long wallTime) {
+    if (started) {
+      long sourceDelta = timestamp - lastTimestamp;
+      mediaTime += sourceDelta > 0 && sourceDelta <= MAX_SOURCE_GAP_MICROS ? sourceDelta
+          : Math.max(0, wallTime - lastWallTime);
+    }
+    started = true;
+    lastTimestamp = timestamp;
+    lastWallTime = wallTime;
+
+    long slot = Math.round(mediaTime * frameRate / 1_000_000);
+    if (slot <= lastSlot) {
+      return 0;
+    }
+    long count = slot - lastSlot;
+    firstSlot = count > maxRepeats ? slot : lastSlot + 1;
+    lastSlot = slot;
+    return (int) Math.min(count, maxRepeats);
+  }
+
+  long firstSlot() {
+    return firstSlot;
+  }
+}
@@ -0,0 +1,145 @@
+package org.rsultan.video.diffusion;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMWRITE_JPEG_QUALITY;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imencode;
+import static org.bytedeco.opencv.global.opencv_imgproc.INTER_AREA;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.OpenCVFrameConverter.ToMat;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+
+/**
+ * Serves the frames as a multipart JPEG stream over HTTP, that browsers display as a video.
+ * <p>
+ * Each frame is encoded once, and only while someone is watching, then handed to every client.
+ * A client busy sending a frame skips the ones published meanwhile so a slow client never holds
+ * back the pipeline nor the other clients.
+ */
+public class MjpegDiffusion implements Diffusion {
+
+  private static final String BOUNDARY = "frame";
+  private static final byte[] CRLF = "\r\n".getBytes(US_ASCII);
+
+  private final HttpServer server;
+  private final Size size;
+  private final IntPointer parameters;
+  private final ToMat toMat = new ToMat();
+  private final Mat resized = new Mat();
+  private final BytePointer buffer = new BytePointer();
+  private final AtomicInteger clients = new AtomicInteger();
+  private final LongAdder encoded = new LongAdder();
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder skipped = new LongAdder();
+  private final Object lock = new Object();
+  private Jpeg latest;
+  private boolean stopped;
+
+  public MjpegDiffusion(HttpServer server, String path, int width, int height, int quality) {
+    this.server = server;
+    this.size = new Size(width, height);
+    this.parameters = new IntPointer(IMWRITE_JPEG_QUALITY, quality);
+    server.createContext(path, this::serve);
+    server.start();
+  }
+
+  @Override
+  public void show(Frame frame) {
+    if (clients.get() == 0) {
+      return;
+    }
+    Mat mat = toMat.convert(frame);
+    if (mat.cols() != size.width() || mat.rows() != size.height()) {
+      resize(mat, resized, size, 0, 0, INTER_AREA);
+      mat = resized;
+    }
+    imencode(".jpg", mat, buffer, parameters);
+    var bytes = new byte[(int) buffer.limit()];
+    buffer.get(bytes);
+    encoded.increment();
+    synchronized (lock) {
+      latest = new Jpeg(latest == null ? 0 : latest.sequence() + 1, bytes);
+      lock.notifyAll();
+    }
+  }
+
+  private void serve(HttpExchange exchange) throws IOException {
+    exchange.getResponseHeaders()
+        .set("Content-Type", "multipart/x-mixed-replace; boundary=" + BOUNDARY);
+    exchange.getResponseHeaders().set("Cache-Control", "no-cache, no-store");
+    exchange.sendResponseHeaders(200, 0);
+    clients.incrementAndGet();
+    try (OutputStream body = exchange.getResponseBody()) {
+      long seen = -1;
+      Jpeg jpeg;
+      while ((jpeg = next(seen)) != null) {
+        if (seen >= 0) {
+          skipped.add(jpeg.sequence() - seen - 1);
+        }
+        seen = jpeg.sequence();
+        body.write(("--" + BOUNDARY + "\r\nContent-Type: image/jpeg\r\nContent-Length: "
+            + jpeg.bytes().length + "\r\n\r\n").getBytes(US_ASCII));
+        body.write(jpeg.bytes());
+        body.write(CRLF);
+        body.flush();
+        sent.increment();
+      }
+    } catch (IOException e) {
+      // The client went away
+    } finally {
+      clients.decrementAndGet();
+      exchange.close();
+    }
+  }
+
+  /**
+   * Waits for a frame more recent than the given one.
+   *
+   * @return null once the diffusion is stopped
+   */
+  private Jpeg next(long seen) {
+    synchronized (lock) {
+      while (!stopped && (latest == null || latest.sequence() <= seen)) {
+        try {
+          lock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return null;
+        }
+      }
+      return stopped ? null : latest;
+    }
+  }
+
+  @Override
+  public void stop() {
+    synchronized (lock) {
+      stopped = true;
+      lock.notifyAll();
+    }
+    server.stop(0);
+    resized.release();
+    buffer.deallocate();
+    parameters.deallocate();
+  }
+
+  @Override
+  public String toString() {
+    return "mjpeg[clients=" + clients.get() + ", encoded=" + encoded.sum() + ", sent="
+        + sent.sum() + ", skipped=" + skipped.sum() + "]";
+  }
+
+  private record Jpeg(long sequence, byte[] bytes) {
+
+  }
+}
@@ -2,5 +2,5 @@ package org.rsultan.video.diffusion;
 
 
 public enum OutputType {
-  DIRECT, STREAM
+  DIRECT, STREAM, MJPEG
 }
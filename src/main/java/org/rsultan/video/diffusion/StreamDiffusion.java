@@ -1,15 +1,28 @@
 package org.rsultan.video.diffusion;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.FrameRecorder;
 import org.bytedeco.javacv.FrameRecorder.Exception;
 import org.rsultan.exception.VideoEndedException;
 
+/**
+ * Encodes frames at the recorder frame rate, stamped from the source timestamps so that the
+ * output stays regular whatever the jitter of the stages before.
+ * <p>
+ * Frames are recorded synchronously by the caller, there is no encoding thread of its own: in a
+ * stream that caller is the encode stage of the pipeline, behind its bounded queue.
+ */
 public class StreamDiffusion implements Diffusion {
 
   private final FrameRecorder recorder;
+  private final LongAdder recorded = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder duplicated = new LongAdder();
+  private final LongAdder encodeNanos = new LongAdder();
+  private FramePacer pacer;
   private boolean started;
-  private long startTime;
 
   public StreamDiffusion(FrameRecorder recorder) {
     this.recorder = recorder;
@@ -20,18 +33,25 @@ public class StreamDiffusion implements Diffusion {
     try {
       if (!started) {
         recorder.start();
-        startTime = System.currentTimeMillis();
-        recorder.setTimestamp(startTime);
+        pacer = new FramePacer(recorder.getFrameRate(),
+            (int) Math.max(1, Math.round(recorder.getFrameRate())));
         started = true;
       }
-      // Create timestamp for this frame
-      long videoTS = 1000 * (System.currentTimeMillis() - startTime);
-
-      if (videoTS > recorder.getTimestamp()) {
-        recorder.setTimestamp(videoTS);
+      int slots = pacer.advance(frame.timestamp,
+          TimeUnit.NANOSECONDS.toMicros(System.nanoTime()));
+      if (slots == 0) {
+        dropped.increment();
+        return;
       }
 
-      recorder.record(frame);
+      long begin = System.nanoTime();
+      for (int i = 0; i < slots; i++) {
+        recorder.setFrameNumber((int) (pacer.firstSlot() + i));
+        recorder.record(frame);
+      }
+      encodeNanos.add(System.nanoTime() - begin);
+      recorded.add(slots);
+      duplicated.add(slots - 1);
     } catch (Throwable e) {
       throw new VideoEndedException(e.getMessage());
     }
@@ -44,4 +64,12 @@ public class StreamDiffusion implements Diffusion {
     }
     started = false;
   }
+
+  @Override
+  public String toString() {
+    long frames = recorded.sum();
+    return "encoder[recorded=" + frames + ", dropped=" + dropped.sum() + ", duplicated="
+        + duplicated.sum() + ", encode=" + (frames == 0 ? 0
+        : TimeUnit.NANOSECONDS.toMicros(encodeNanos.sum() / frames) / 1000f) + "ms]";
+  }
 }
@@ -0,0 +1,69 @@
+package org.rsultan.video.diffusion.config;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.Executors;
+
+public class MjpegConfiguration extends DiffusionConfiguration<HttpServer> {
+
+  private static final int DEFAULT_PORT = 8080;
+  private static final String DEFAULT_PATH = "/";
+
+  private int quality;
+
+  /**
+   * Binds the server to the host and port of the address, eg: http://0.0.0.0:8080/camera
+   */
+  @Override
+  public HttpServer build() {
+    var uri = URI.create(address);
+    var host = uri.getHost() == null ? "0.0.0.0" : uri.getHost();
+    var port = uri.getPort() < 0 ? DEFAULT_PORT : uri.getPort();
+    try {
+      var server = HttpServer.create(new InetSocketAddress(host, port), 0);
+      server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+        var thread = new Thread(runnable, "mjpeg-client");
+        thread.setDaemon(true);
+        return thread;
+      }));
+      return server;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public String getPath() {
+    var path = URI.create(address).getPath();
+    return path == null || path.isEmpty() ? DEFAULT_PATH : path;
+  }
+
+  public int getQuality() {
+    return quality;
+  }
+
+  public MjpegConfiguration setQuality(int quality) {
+    this.quality = quality;
+    return this;
+  }
+
+  @Override
+  public MjpegConfiguration setAddress(String address) {
+    super.setAddress(address);
+    return this;
+  }
+
+  @Override
+  public MjpegConfiguration setWidth(int width) {
+    super.setWidth(width);
+    return this;
+  }
+
+  @Override
+  public MjpegConfiguration setHeight(int height) {
+    super.setHeight(height);
+    return this;
+  }
+}
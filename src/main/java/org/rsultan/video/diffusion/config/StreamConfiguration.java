@@ -30,6 +30,10 @@ public class StreamConfiguration extends DiffusionConfiguration<FrameRecorder> {
     recorder.setFormat(format);
     recorder.setFrameRate(frameRate);
     recorder.setGopSize(gopSizeInFrames);
+    if ("tee".equals(format)) {
+      // Some of the muxers behind the tee expect the codec headers out of band
+      recorder.setVideoOption("flags", "+global_header");
+    }
 
     recorder.setAudioOption("crf", "0");
     recorder.setAudioQuality(0);
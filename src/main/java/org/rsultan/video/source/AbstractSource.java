@@ -9,6 +9,7 @@ public abstract class AbstractSource implements Source {
 
   protected final FrameGrabber grabber;
   private boolean started;
+  private long captured;
 
   protected AbstractSource(FrameGrabber grabber, int width, int height) {
     this.grabber = grabber;
@@ -16,21 +17,45 @@ public abstract class AbstractSource implements Source {
     this.grabber.setImageHeight(height);
   }
 
+  @Override
+  public void start() throws Exception {
+    open();
+  }
+
+  /**
+   * Starts the grabber unless it already is.
+   */
+  protected void open() throws Exception {
+    if (!started) {
+      grabber.start();
+      started = true;
+    }
+  }
+
   @Override
   public Optional<Frame> capture() {
     try {
-      if (!started) {
-        grabber.start();
-        started = true;
-      }
-      Frame value = actualCapture();
-      return Optional.ofNullable(value);
+      return Optional.ofNullable(tryCapture());
     } catch (java.lang.Exception e) {
       e.printStackTrace();
       return Optional.empty();
     }
   }
 
+  /**
+   * Starts the source if needed, then grabs the next frame.
+   *
+   * @return null once the source ended
+   */
+  protected Frame tryCapture() throws java.lang.Exception {
+    open();
+    Frame value = actualCapture();
+    if (value != null) {
+      captured++;
+    }
+    return value;
+  }
+
   @Override
   public Frame actualCapture() throws Exception {
     return grabber.grab();
@@ -48,4 +73,13 @@ public abstract class AbstractSource implements Source {
   public FrameGrabber getFrameGrabber() {
     return grabber;
   }
+
+  public long captured() {
+    return captured;
+  }
+
+  @Override
+  public String toString() {
+    return "source[captured=" + captured + "]";
+  }
 }
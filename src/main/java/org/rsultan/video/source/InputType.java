@@ -1,5 +1,5 @@
 package org.rsultan.video.source;
 
 public enum InputType {
-  DIRECT, STREAM
+  DIRECT, STREAM, FILE
 }
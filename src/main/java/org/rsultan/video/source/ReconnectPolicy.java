@@ -0,0 +1,29 @@
+package org.rsultan.video.source;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How a source that failed or ended is opened again.
+ *
+ * @param attempts       the attempts made in a row before giving up, 0 never reconnects and a
+ *                       negative value retries forever
+ * @param delayMillis    the wait before the first attempt, doubled after each failed one
+ * @param maxDelayMillis the longest wait between two attempts
+ */
+public record ReconnectPolicy(int attempts, long delayMillis, long maxDelayMillis) {
+
+  public static final ReconnectPolicy NEVER = new ReconnectPolicy(0, 0, 0);
+
+  public boolean retries(int attempt) {
+    return attempts < 0 || attempt < attempts;
+  }
+
+  /**
+   * @return the wait before the given attempt, spread by a quarter so that the streams of a
+   * restarted server do not all reconnect at once
+   */
+  public long delay(int attempt) {
+    long delay = Math.min(maxDelayMillis, delayMillis << Math.min(attempt, 20));
+    return delay - ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+  }
+}
@@ -2,12 +2,18 @@ package org.rsultan.video.source;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.DoubleSupplier;
 import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.FrameGrabber;
 import org.bytedeco.javacv.FrameGrabber.Exception;
 
 public interface Source {
 
+  /**
+   * Opens the source ahead of the first capture, which would open it otherwise.
+   */
+  void start() throws Exception;
+
   Optional<Frame> capture();
 
   Frame actualCapture() throws InterruptedException, Exception;
@@ -16,11 +22,19 @@ public interface Source {
 
   FrameGrabber getFrameGrabber();
 
+  /**
+   * @param backlog how far behind the consumers of the frames are, from 0 to 1
+   */
+  default void setBacklog(DoubleSupplier backlog) {
+  }
+
 
   static Source get(InputType sourceType, Map<String, ?> properties) {
     return switch (sourceType) {
       case DIRECT -> new DeviceSource(properties);
-      case STREAM -> new StreamSource(properties);
+      case STREAM -> new StreamSource(properties, true);
+      // Files are processed offline, see OfflineDetection, this only plays them in real time
+      case FILE -> new StreamSource(properties, false);
     };
   }
 }
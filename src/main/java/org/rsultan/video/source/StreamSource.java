@@ -6,19 +6,66 @@ import static org.rsultan.video.Constants.CRF;
 import static org.rsultan.video.Constants.FORMAT;
 import static org.rsultan.video.Constants.FRAME_RATE;
 import static org.rsultan.video.Constants.HEIGHT;
+import static org.rsultan.video.Constants.LOWRES;
 import static org.rsultan.video.Constants.PRESET;
+import static org.rsultan.video.Constants.SKIP_BACKLOG;
 import static org.rsultan.video.Constants.ADDRESS;
+import static org.rsultan.video.Constants.ANALYZE_DURATION;
+import static org.rsultan.video.Constants.LOW_LATENCY;
+import static org.rsultan.video.Constants.PROBE_SIZE;
+import static org.rsultan.video.Constants.RECONNECT_ATTEMPTS;
+import static org.rsultan.video.Constants.RECONNECT_DELAY;
+import static org.rsultan.video.Constants.RECONNECT_MAX_DELAY;
+import static org.rsultan.video.Constants.TIMEOUT;
 import static org.rsultan.video.Constants.TUNE;
 import static org.rsultan.video.Constants.WIDTH;
 
+import java.lang.reflect.Field;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.DoubleSupplier;
+import org.bytedeco.ffmpeg.avcodec.AVCodecContext;
+import org.bytedeco.ffmpeg.global.avcodec;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.FrameGrabber.Exception;
 
+/**
+ * Grabs the frames of an FFmpeg input.
+ * <p>
+ * Decoding and converting frames that the pipeline will drop anyway is wasted work. When a queue
+ * of the pipeline fills above the skip backlog, the decoder is told to skip the frames no other
+ * frame refers to, and the frames still decoded are not converted to BGR, until the queue drains.
+ * Frames are converted straight to the input size, in the same pass as their pixel format.
+ * <p>
+ * A live source that fails or ends is opened again according to its {@link ReconnectPolicy},
+ * the pipeline simply waits for the next frame meanwhile.
+ */
 public class StreamSource extends AbstractSource {
 
+  private static final int MAX_SKIPPED_IN_ROW = 30;
+  private static final int LOW_LATENCY_PROBE_SIZE = 32 * 1024;
+  private static final int LOW_LATENCY_ANALYZE_MILLIS = 100;
+
+  private final double skipBacklog;
+  private DoubleSupplier backlog = () -> 0;
+  private AVCodecContext decoder;
+  private boolean decoderUnavailable;
+  private boolean skipping;
+  private long skipped;
+  private final String address;
+  private final ReconnectPolicy reconnect;
+  private long reconnections;
+
   public StreamSource(Map<String,?> properties) {
+    this(properties, true);
+  }
+
+  /**
+   * @param live reconnects as set in the properties, otherwise the source ends on the first
+   *             failure or at its end
+   */
+  public StreamSource(Map<String,?> properties, boolean live) {
     super(
         new FFmpegFrameGrabber((String) properties.get(ADDRESS)),
         (int) properties.get(WIDTH),
@@ -32,10 +79,150 @@ public class StreamSource extends AbstractSource {
     grabber.setVideoCodec((int) properties.get(CODEC));
     grabber.setFormat((String) properties.get(FORMAT));
     grabber.setFrameRate((int) properties.get(FRAME_RATE));
+    int lowres = (int) properties.get(LOWRES);
+    if (lowres > 0) {
+      grabber.setVideoOption(LOWRES, String.valueOf(lowres));
+    }
+    skipBacklog = (int) properties.get(SKIP_BACKLOG) / 100.0;
+
+    // Probing and buffering delay the first frame by seconds, a known live format needs little
+    boolean lowLatency = (boolean) properties.get(LOW_LATENCY);
+    int probeSize = (int) properties.get(PROBE_SIZE);
+    int analyzeMillis = (int) properties.get(ANALYZE_DURATION);
+    if (lowLatency) {
+      grabber.setOption("fflags", "nobuffer");
+      grabber.setVideoOption("flags", "low_delay");
+      probeSize = probeSize > 0 ? probeSize : LOW_LATENCY_PROBE_SIZE;
+      analyzeMillis = analyzeMillis > 0 ? analyzeMillis : LOW_LATENCY_ANALYZE_MILLIS;
+    }
+    if (probeSize > 0) {
+      grabber.setOption("probesize", String.valueOf(probeSize));
+    }
+    if (analyzeMillis > 0) {
+      grabber.setOption("analyzeduration", String.valueOf(analyzeMillis * 1000L));
+    }
+    // Without it a stalled connection blocks the grab forever instead of failing
+    int timeoutMillis = (int) properties.get(TIMEOUT);
+    if (timeoutMillis > 0) {
+      grabber.setOption("rw_timeout", String.valueOf(timeoutMillis * 1000L));
+    }
+
+    address = (String) properties.get(ADDRESS);
+    reconnect = live ? new ReconnectPolicy((int) properties.get(RECONNECT_ATTEMPTS),
+        (int) properties.get(RECONNECT_DELAY), (int) properties.get(RECONNECT_MAX_DELAY))
+        : ReconnectPolicy.NEVER;
+  }
+
+  @Override
+  public Optional<Frame> capture() {
+    for (int attempt = 0; ; attempt++) {
+      try {
+        var frame = tryCapture();
+        if (frame != null || !reconnect.retries(0)) {
+          return Optional.ofNullable(frame);
+        }
+        System.err.println("[" + address + "] ended, reconnecting");
+      } catch (java.lang.Exception e) {
+        if (!reconnect.retries(0)) {
+          e.printStackTrace();
+          return Optional.empty();
+        }
+        System.err.println("[" + address + "] " + e.getMessage() + ", reconnecting");
+      }
+      if (!reconnect.retries(attempt)) {
+        System.err.println("[" + address + "] gave up after " + attempt + " attempts");
+        return Optional.empty();
+      }
+      try {
+        stop();
+        // Also frees what a start failing halfway left open
+        grabber.release();
+      } catch (java.lang.Exception e) {
+        // The next attempt opens a new connection anyway
+      }
+      try {
+        Thread.sleep(reconnect.delay(attempt));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return Optional.empty();
+      }
+      reconnections++;
+    }
+  }
+
+  /**
+   * A live source that cannot be opened yet is left to the first capture, which opens it through
+   * the same reconnections as a dropped connection.
+   */
+  @Override
+  public void start() throws Exception {
+    try {
+      super.start();
+    } catch (Exception e) {
+      if (!reconnect.retries(0)) {
+        throw e;
+      }
+      System.err.println("[" + address + "] " + e.getMessage() + ", reconnecting");
+    }
+  }
+
+  @Override
+  public void stop() throws Exception {
+    super.stop();
+    // A new connection comes with a new decoder
+    decoder = null;
+    skipping = false;
+  }
+
+  @Override
+  public void setBacklog(DoubleSupplier backlog) {
+    this.backlog = backlog;
   }
 
   @Override
   public Frame actualCapture() throws Exception {
-    return ((FFmpegFrameGrabber) grabber).grabImage();
+    var ffmpeg = (FFmpegFrameGrabber) grabber;
+    if (skipBacklog > 0) {
+      for (int i = 0; i < MAX_SKIPPED_IN_ROW && backlog.getAsDouble() >= skipBacklog; i++) {
+        skipNonReference(true);
+        // Reference frames are still decoded for the next ones, they are just not converted
+        if (ffmpeg.grabFrame(false, true, false, false) == null) {
+          return null;
+        }
+        skipped++;
+      }
+      skipNonReference(false);
+    }
+    return ffmpeg.grabImage();
+  }
+
+  private void skipNonReference(boolean skip) {
+    if (skip == skipping || decoder() == null) {
+      return;
+    }
+    decoder.skip_frame(skip ? avcodec.AVDISCARD_NONREF : avcodec.AVDISCARD_DEFAULT);
+    skipping = skip;
+  }
+
+  /**
+   * The grabber does not expose its decoder, which is only reachable by reflection.
+   */
+  private AVCodecContext decoder() {
+    if (decoder == null && !decoderUnavailable) {
+      try {
+        Field field = FFmpegFrameGrabber.class.getDeclaredField("video_c");
+        field.setAccessible(true);
+        decoder = (AVCodecContext) field.get(grabber);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        decoderUnavailable = true;
+      }
+    }
+    return decoder;
+  }
+
+  @Override
+  public String toString() {
+    return "source[captured=" + captured() + ", skipped=" + skipped + ", reconnections="
+        + reconnections + "]";
   }
 }
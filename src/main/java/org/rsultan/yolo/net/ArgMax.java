@@ -0,0 +1,76 @@
+package org.rsultan.yolo.net;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Index of the highest value of a float range, using the widest vectors the CPU supports.
+ */
+final class ArgMax {
+
+  private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Integer> INT_SPECIES =
+      VectorSpecies.of(int.class, SPECIES.vectorShape());
+
+  private ArgMax() {
+  }
+
+  /**
+   * @return the index of the first occurrence of the maximum, -1 if the range is empty
+   */
+  static int argMax(float[] values, int from, int to) {
+    int upperBound = from + SPECIES.loopBound(to - from);
+    var maxVector = FloatVector.broadcast(SPECIES, Float.NEGATIVE_INFINITY);
+    int i = from;
+    for (; i < upperBound; i += SPECIES.length()) {
+      maxVector = maxVector.max(FloatVector.fromArray(SPECIES, values, i));
+    }
+    float max = maxVector.reduceLanes(VectorOperators.MAX);
+    for (int k = i; k < to; k++) {
+      max = Math.max(max, values[k]);
+    }
+
+    for (i = from; i < upperBound; i += SPECIES.length()) {
+      VectorMask<Float> found = FloatVector.fromArray(SPECIES, values, i)
+          .compare(VectorOperators.EQ, max);
+      if (found.anyTrue()) {
+        return i + found.firstTrue();
+      }
+    }
+    for (; i < to; i++) {
+      if (values[i] == max) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Folds one class row of a transposed output into the best score and class of every column,
+   * a column keeps its first best class on ties.
+   */
+  static void columnMax(float[] scores, int classId, float[] best, int[] bestClasses,
+      int length) {
+    int upperBound = SPECIES.loopBound(length);
+    int i = 0;
+    for (; i < upperBound; i += SPECIES.length()) {
+      var values = FloatVector.fromArray(SPECIES, scores, i);
+      var current = FloatVector.fromArray(SPECIES, best, i);
+      VectorMask<Float> better = values.compare(VectorOperators.GT, current);
+      if (better.anyTrue()) {
+        current.blend(values, better).intoArray(best, i);
+        IntVector.fromArray(INT_SPECIES, bestClasses, i)
+            .blend(classId, better.cast(INT_SPECIES)).intoArray(bestClasses, i);
+      }
+    }
+    for (; i < length; i++) {
+      if (scores[i] > best[i]) {
+        best[i] = scores[i];
+        bestClasses[i] = classId;
+      }
+    }
+  }
+}
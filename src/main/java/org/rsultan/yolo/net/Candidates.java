@@ -0,0 +1,127 @@
+package org.rsultan.yolo.net;
+
+import java.util.Arrays;
+
+/**
+ * Growable primitive arrays holding the boxes decoded from the net outputs, meant to be reused
+ * from one frame to the next by a single thread.
+ */
+final class Candidates {
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  int size;
+  int[] classIds = new int[INITIAL_CAPACITY];
+  float[] scores = new float[INITIAL_CAPACITY];
+  int[] lefts = new int[INITIAL_CAPACITY];
+  int[] tops = new int[INITIAL_CAPACITY];
+  int[] widths = new int[INITIAL_CAPACITY];
+  int[] heights = new int[INITIAL_CAPACITY];
+
+  /**
+   * Indices of the candidates kept after suppression, {@code keptCount} of them are valid.
+   */
+  int keptCount;
+  int[] kept = new int[INITIAL_CAPACITY];
+
+  /**
+   * Best score and class of each column of a transposed output.
+   */
+  float[] columnScores = new float[0];
+  int[] columnClasses = new int[0];
+
+  private float[] row = new float[0];
+  private long[] keys = new long[INITIAL_CAPACITY];
+  private int[] order = new int[INITIAL_CAPACITY];
+  private Candidates[] heads = new Candidates[0];
+
+  void clear() {
+    size = 0;
+    keptCount = 0;
+  }
+
+  void add(int classId, float score, int left, int top, int width, int height) {
+    if (size == classIds.length) {
+      grow();
+    }
+    classIds[size] = classId;
+    scores[size] = score;
+    lefts[size] = left;
+    tops[size] = top;
+    widths[size] = width;
+    heights[size] = height;
+    size++;
+  }
+
+  void addAll(Candidates other) {
+    for (int i = 0; i < other.size; i++) {
+      add(other.classIds[i], other.scores[i], other.lefts[i], other.tops[i], other.widths[i],
+          other.heights[i]);
+    }
+  }
+
+  /**
+   * Creates the head on first use, only the thread owning these candidates may call it.
+   *
+   * @return the candidates of the given output head, decoded apart before being merged here
+   */
+  Candidates head(int index) {
+    if (index >= heads.length) {
+      heads = Arrays.copyOf(heads, index + 1);
+    }
+    if (heads[index] == null) {
+      heads[index] = new Candidates();
+    }
+    return heads[index];
+  }
+
+  float[] row(int length) {
+    if (row.length < length) {
+      row = new float[length];
+    }
+    return row;
+  }
+
+  void clearColumns(int length) {
+    if (columnScores.length < length) {
+      columnScores = new float[length];
+      columnClasses = new int[length];
+    }
+    Arrays.fill(columnScores, 0, length, Float.NEGATIVE_INFINITY);
+    Arrays.fill(columnClasses, 0, length, -1);
+  }
+
+  void keep(int index) {
+    kept[keptCount++] = index;
+  }
+
+  /**
+   * Sorts the candidate indices by decreasing score without boxing them: positive float bits
+   * keep their order once used as the high part of a long.
+   *
+   * @return the sorted indices, only the {@code size} first ones are valid
+   */
+  int[] sortByScore() {
+    for (int i = 0; i < size; i++) {
+      keys[i] = ((long) Float.floatToRawIntBits(scores[i]) << 32) | (Integer.MAX_VALUE - i);
+    }
+    Arrays.sort(keys, 0, size);
+    for (int i = 0; i < size; i++) {
+      order[i] = Integer.MAX_VALUE - (int) keys[size - 1 - i];
+    }
+    return order;
+  }
+
+  private void grow() {
+    int capacity = classIds.length * 2;
+    classIds = Arrays.copyOf(classIds, capacity);
+    scores = Arrays.copyOf(scores, capacity);
+    lefts = Arrays.copyOf(lefts, capacity);
+    tops = Arrays.copyOf(tops, capacity);
+    widths = Arrays.copyOf(widths, capacity);
+    heights = Arrays.copyOf(heights, capacity);
+    kept = Arrays.copyOf(kept, capacity);
+    keys = Arrays.copyOf(keys, capacity);
+    order = Arrays.copyOf(order, capacity);
+  }
+}
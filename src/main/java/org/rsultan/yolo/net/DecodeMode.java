@@ -0,0 +1,19 @@
+package org.rsultan.yolo.net;
+
+/**
+ * How the net outputs are scanned for candidate boxes.
+ */
+public enum DecodeMode {
+  /**
+   * Scans every class score of every row.
+   */
+  SCALAR,
+  /**
+   * Rejects rows on their objectness first, then looks for the best class with the Vector API.
+   */
+  VECTOR,
+  /**
+   * Same as {@link #VECTOR}, each output head being scanned on its own fork-join task.
+   */
+  PARALLEL
+}
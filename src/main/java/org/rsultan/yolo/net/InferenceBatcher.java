@@ -0,0 +1,159 @@
+package org.rsultan.yolo.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Groups the frames submitted by any number of callers into batches running a single forward
+ * pass on one net of a {@link YoloNetPool}.
+ * <p>
+ * A single collector forms the batches: a batch is sent as soon as it holds {@code maxBatchSize}
+ * frames or its first frame has waited for {@code maxDelayMillis}. While every net is busy the
+ * waiting batch keeps filling up. The batches then run concurrently, one per net.
+ */
+public class InferenceBatcher implements Predictor, AutoCloseable {
+
+  private final YoloNetPool pool;
+  private final int maxBatchSize;
+  private final long maxDelayNanos;
+  private static final long IDLE_NET_POLL_MICROS = 200;
+
+  private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong frames = new AtomicLong();
+  private final Semaphore idleNets;
+  private final ExecutorService forwards;
+  private final Thread collector;
+
+  public InferenceBatcher(YoloNetPool pool, int maxBatchSize, long maxDelayMillis) {
+    this.pool = pool;
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+    this.idleNets = new Semaphore(pool.size());
+    var forwardThreads = new AtomicInteger();
+    this.forwards = Executors.newFixedThreadPool(pool.size(), runnable -> {
+      var thread = new Thread(runnable,
+          "inference-batcher-" + forwardThreads.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.collector = new Thread(this::collect, "inference-batcher");
+    this.collector.setDaemon(true);
+    this.collector.start();
+  }
+
+  /**
+   * Queues the frame for the next batch, the frame must not change until the result completes.
+   */
+  public CompletableFuture<List<DetectionResult>> submit(Mat frame) {
+    var request = new Request(frame, new CompletableFuture<>());
+    requests.add(request);
+    return request.result();
+  }
+
+  @Override
+  public List<DetectionResult> predict(Mat frame) {
+    try {
+      return submit(frame).join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+    }
+  }
+
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  private void collect() {
+    var batch = new ArrayList<Request>(maxBatchSize);
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        batch.add(requests.take());
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+          var request = requests.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (request == null) {
+            break;
+          }
+          batch.add(request);
+        }
+        awaitIdleNet(batch);
+        var sent = List.copyOf(batch);
+        forwards.execute(() -> forward(sent));
+        batch.clear();
+      }
+    } catch (InterruptedException | RejectedExecutionException e) {
+      batch.forEach(request -> request.result().cancel(false));
+    }
+  }
+
+  /**
+   * Frames arriving while every net is busy join the batch instead of waiting for the next one.
+   */
+  private void awaitIdleNet(List<Request> batch) throws InterruptedException {
+    while (batch.size() < maxBatchSize) {
+      if (idleNets.tryAcquire(IDLE_NET_POLL_MICROS, TimeUnit.MICROSECONDS)) {
+        return;
+      }
+      requests.drainTo(batch, maxBatchSize - batch.size());
+    }
+    idleNets.acquire();
+  }
+
+  private void forward(List<Request> batch) {
+    try {
+      var images = batch.stream().map(Request::frame).toList();
+      var results = pool.apply(yoloNet -> yoloNet.predict(images));
+      batches.incrementAndGet();
+      frames.addAndGet(batch.size());
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).result().complete(results.get(i));
+      }
+    } catch (Throwable e) {
+      batch.forEach(request -> request.result().completeExceptionally(e));
+    } finally {
+      idleNets.release();
+    }
+  }
+
+  @Override
+  public void close() {
+    collector.interrupt();
+    forwards.shutdown();
+    try {
+      collector.join();
+      forwards.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    Request request;
+    while ((request = requests.poll()) != null) {
+      request.result().completeExceptionally(new CancellationException("The batcher is closed"));
+    }
+  }
+
+  @Override
+  public String toString() {
+    long batchCount = batches.get();
+    return "batcher[batches=" + batchCount + ", frames=" + frames.get() + ", mean size="
+        + (batchCount == 0 ? 0 : Math.round(frames.get() * 10.0 / batchCount) / 10.0) + "]";
+  }
+
+  private record Request(Mat frame, CompletableFuture<List<DetectionResult>> result) {
+
+  }
+}
@@ -0,0 +1,168 @@
+package org.rsultan.yolo.net;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Keeps at most one inference in flight per worker, typically one worker per pooled net.
+ * <p>
+ * Frames are copied into a single-slot mailbox, a frame still waiting when a newer one is
+ * submitted is skipped so detections always come from the most recent frame. With several
+ * workers a slower inference never overwrites the result of a more recent frame.
+ */
+public class InferenceScheduler implements AutoCloseable {
+
+  private final Predictor predictor;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition framePending = lock.newCondition();
+  private final AtomicLong skipped = new AtomicLong();
+  private final AtomicLong inferred = new AtomicLong();
+  private final List<Thread> workers;
+
+  private Mat mailbox = new Mat();
+  private long mailboxSequence;
+  private boolean pending;
+  private boolean closed;
+  private volatile Detections published = new Detections(-1, List.of());
+
+  public InferenceScheduler(YoloNetPool pool) {
+    this(pool, pool.size());
+  }
+
+  public InferenceScheduler(Predictor predictor, int parallelism) {
+    this.predictor = predictor;
+    this.workers = IntStream.range(0, parallelism).mapToObj(index -> {
+      var worker = new Thread(this::infer, "inference-scheduler-" + index);
+      worker.setDaemon(true);
+      worker.start();
+      return worker;
+    }).toList();
+  }
+
+  /**
+   * Replaces the frame waiting for inference, never blocks on the predictor.
+   */
+  public void submit(Mat frame) {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      if (pending) {
+        skipped.incrementAndGet();
+      }
+      frame.copyTo(mailbox);
+      mailboxSequence++;
+      pending = true;
+      framePending.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the detections of the most recent inferred frame
+   */
+  public List<DetectionResult> latest() {
+    return published.results();
+  }
+
+  /**
+   * @return the detections of the most recent inferred frame along with that frame sequence
+   *     number, which tells apart two inferences with the same results
+   */
+  public Detections published() {
+    return published;
+  }
+
+  public long skipped() {
+    return skipped.get();
+  }
+
+  public long inferred() {
+    return inferred.get();
+  }
+
+  private void infer() {
+    var inFlight = new Mat();
+    try {
+      while (true) {
+        long sequence;
+        lock.lock();
+        try {
+          while (!pending && !closed) {
+            framePending.awaitUninterruptibly();
+          }
+          if (closed) {
+            return;
+          }
+          var swap = inFlight;
+          inFlight = mailbox;
+          mailbox = swap;
+          sequence = mailboxSequence;
+          pending = false;
+        } finally {
+          lock.unlock();
+        }
+
+        try {
+          var result = predictor.predict(inFlight);
+          inferred.incrementAndGet();
+          publish(sequence, result);
+        } catch (Throwable e) {
+          e.printStackTrace();
+        }
+      }
+    } finally {
+      inFlight.release();
+    }
+  }
+
+  private void publish(long sequence, List<DetectionResult> result) {
+    lock.lock();
+    try {
+      if (sequence > published.sequence()) {
+        published = new Detections(sequence, result);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      framePending.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    for (Thread worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    mailbox.release();
+  }
+
+  @Override
+  public String toString() {
+    return "inference[workers=" + workers.size() + ", inferred=" + inferred.get() + ", skipped="
+        + skipped.get() + "]";
+  }
+
+  /**
+   * @param sequence the number of frames submitted before the inferred one
+   */
+  public record Detections(long sequence, List<DetectionResult> results) {
+
+  }
+}
@@ -0,0 +1,49 @@
+package org.rsultan.yolo.net;
+
+/**
+ * Where a frame was drawn in the net input: {@code input = frame * scale + pad} on each axis.
+ * <p>
+ * The net reports boxes relative to its input, this maps them back to frame pixels.
+ */
+public record Letterbox(int inputWidth, int inputHeight, float scaleX, float scaleY, float padX,
+                        float padY) {
+
+  /**
+   * Fits the frame in the input keeping its aspect ratio, the remaining borders are padded.
+   */
+  public static Letterbox fit(int frameWidth, int frameHeight, int inputWidth, int inputHeight) {
+    float scale = Math.min((float) inputWidth / frameWidth, (float) inputHeight / frameHeight);
+    int scaledWidth = Math.round(frameWidth * scale);
+    int scaledHeight = Math.round(frameHeight * scale);
+    return new Letterbox(inputWidth, inputHeight, scale, scale, (inputWidth - scaledWidth) / 2,
+        (inputHeight - scaledHeight) / 2);
+  }
+
+  /**
+   * Stretches the frame over the whole input.
+   */
+  public static Letterbox stretch(int frameWidth, int frameHeight, int inputWidth,
+      int inputHeight) {
+    return new Letterbox(inputWidth, inputHeight, (float) inputWidth / frameWidth,
+        (float) inputHeight / frameHeight, 0, 0);
+  }
+
+  /**
+   * @param ratio an abscissa relative to the input width
+   */
+  public float frameX(float ratio) {
+    return (ratio * inputWidth - padX) / scaleX;
+  }
+
+  public float frameY(float ratio) {
+    return (ratio * inputHeight - padY) / scaleY;
+  }
+
+  public float frameWidth(float ratio) {
+    return ratio * inputWidth / scaleX;
+  }
+
+  public float frameHeight(float ratio) {
+    return ratio * inputHeight / scaleY;
+  }
+}
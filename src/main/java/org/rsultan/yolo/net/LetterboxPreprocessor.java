@@ -0,0 +1,160 @@
+package org.rsultan.yolo.net;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC3;
+import static org.bytedeco.opencv.global.opencv_imgproc.INTER_LINEAR;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+
+/**
+ * Turns a BGR frame into the NCHW float planes of the net input tensor.
+ * <p>
+ * The frame is resized once into a reused buffer, then a single pass pads it, swaps BGR to RGB,
+ * normalizes and writes every plane straight into the tensor, rows being split in bands filled
+ * in parallel. Instances are not meant to be shared between threads.
+ */
+public class LetterboxPreprocessor {
+
+  private static final float PAD_VALUE = 114 / 255f;
+  private static final int ROWS_PER_BAND = 16;
+  private static final int CHANNELS = 3;
+  private static final float[] NORMALIZED = new float[256];
+
+  static {
+    for (int i = 0; i < NORMALIZED.length; i++) {
+      NORMALIZED[i] = i / 255f;
+    }
+  }
+
+  private final int width;
+  private final int height;
+  private final boolean letterbox;
+  private final Mat resized = new Mat();
+  private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+  private int frameWidth;
+  private int frameHeight;
+  private Letterbox geometry;
+  private Size scaledSize;
+  private int scaledWidth;
+  private int scaledHeight;
+
+  /**
+   * @param letterbox keeps the frame aspect ratio and pads the borders, otherwise the frame is
+   *                  stretched over the input
+   */
+  public LetterboxPreprocessor(int width, int height, boolean letterbox) {
+    this.width = width;
+    this.height = height;
+    this.letterbox = letterbox;
+  }
+
+  /**
+   * @return the number of floats an image takes in the input tensor
+   */
+  public int imageSize() {
+    return CHANNELS * width * height;
+  }
+
+  /**
+   * Writes the frame as the {@code index}-th image of the tensor.
+   *
+   * @param frame a BGR frame
+   * @return where the frame was drawn in the input
+   */
+  public Letterbox fill(Mat frame, FloatBuffer tensor, int index) {
+    if (frame.type() != CV_8UC3) {
+      throw new IllegalArgumentException("Expected a BGR frame, got type " + frame.type());
+    }
+    prepare(frame.cols(), frame.rows());
+    resize(frame, resized, scaledSize, 0, 0, INTER_LINEAR);
+    final ByteBuffer pixels = new BytePointer(resized.data())
+        .capacity((long) scaledWidth * scaledHeight * CHANNELS).asByteBuffer();
+    final int offset = index * imageSize();
+    int bands = (height + ROWS_PER_BAND - 1) / ROWS_PER_BAND;
+    IntStream.range(0, bands).parallel().forEach(band -> {
+      int last = Math.min(height, (band + 1) * ROWS_PER_BAND);
+      for (int y = band * ROWS_PER_BAND; y < last; y++) {
+        fillRow(pixels, tensor, offset, y);
+      }
+    });
+    return geometry;
+  }
+
+  private void fillRow(ByteBuffer pixels, FloatBuffer tensor, int offset, int y) {
+    final int plane = width * height;
+    final int row = offset + y * width;
+    final int top = (int) geometry.padY();
+    final int left = (int) geometry.padX();
+    final Scratch buffers = scratch.get().ensure(width);
+    if (y < top || y >= top + scaledHeight) {
+      pad(buffers, tensor, row, 0, width, plane);
+      return;
+    }
+    pad(buffers, tensor, row, 0, left, plane);
+    pad(buffers, tensor, row, left + scaledWidth, width, plane);
+
+    final byte[] bgr = buffers.bgr;
+    final float[] red = buffers.red;
+    final float[] green = buffers.green;
+    final float[] blue = buffers.blue;
+    pixels.get((y - top) * scaledWidth * CHANNELS, bgr, 0, scaledWidth * CHANNELS);
+    for (int x = 0, i = 0; x < scaledWidth; x++, i += CHANNELS) {
+      blue[x] = NORMALIZED[bgr[i] & 0xFF];
+      green[x] = NORMALIZED[bgr[i + 1] & 0xFF];
+      red[x] = NORMALIZED[bgr[i + 2] & 0xFF];
+    }
+    tensor.put(row + left, red, 0, scaledWidth);
+    tensor.put(row + plane + left, green, 0, scaledWidth);
+    tensor.put(row + 2 * plane + left, blue, 0, scaledWidth);
+  }
+
+  private static void pad(Scratch buffers, FloatBuffer tensor, int row, int from, int to,
+      int plane) {
+    for (int channel = 0; channel < CHANNELS && from < to; channel++) {
+      tensor.put(row + channel * plane + from, buffers.padding, 0, to - from);
+    }
+  }
+
+  private void prepare(int frameWidth, int frameHeight) {
+    if (geometry != null && frameWidth == this.frameWidth && frameHeight == this.frameHeight) {
+      return;
+    }
+    this.frameWidth = frameWidth;
+    this.frameHeight = frameHeight;
+    geometry = letterbox ? Letterbox.fit(frameWidth, frameHeight, width, height)
+        : Letterbox.stretch(frameWidth, frameHeight, width, height);
+    scaledWidth = Math.min(width - (int) geometry.padX(),
+        Math.round(frameWidth * geometry.scaleX()));
+    scaledHeight = Math.min(height - (int) geometry.padY(),
+        Math.round(frameHeight * geometry.scaleY()));
+    scaledSize = new Size(scaledWidth, scaledHeight);
+  }
+
+  private static final class Scratch {
+
+    private byte[] bgr = new byte[0];
+    private float[] red = new float[0];
+    private float[] green = new float[0];
+    private float[] blue = new float[0];
+    private float[] padding = new float[0];
+
+    private Scratch ensure(int width) {
+      if (red.length < width) {
+        bgr = new byte[width * CHANNELS];
+        red = new float[width];
+        green = new float[width];
+        blue = new float[width];
+        padding = new float[width];
+        Arrays.fill(padding, PAD_VALUE);
+      }
+      return this;
+    }
+  }
+}
@@ -0,0 +1,295 @@
+package org.rsultan.yolo.net;
+
+import java.util.Arrays;
+import org.rsultan.yolo.net.config.NmsConfig;
+
+/**
+ * Non-maximum suppression over {@link Candidates}, working on primitive arrays only.
+ * <p>
+ * The best {@code topK} candidates are selected with a bounded heap before suppression. Large
+ * candidate sets are bucketed in a uniform grid so a box is only compared with the kept boxes
+ * sharing one of its cells. Instances hold scratch buffers and must stay on a single thread.
+ * <p>
+ * Overlaps are measured with the intersection over union. When merging the detections of
+ * overlapping tiles, two boxes from different tiles are measured over the smaller box instead: a
+ * box cut by a tile border is then still caught by the whole box of the neighbouring tile, while
+ * occluded objects seen by the same tile stay apart.
+ */
+final class NonMaximumSuppression {
+
+  private static final int GRID_MIN_CANDIDATES = 128;
+  private static final int GRID_MAX_CELLS_PER_SIDE = 64;
+  private static final int GRID_MIN_CELL_SIZE = 8;
+
+  private final NmsConfig config;
+  private final float scoreThreshold;
+
+  private int[] selected = new int[0];
+  private float[] decayed = new float[0];
+  private int[] cellHeads = new int[0];
+  private int[] entryNext = new int[0];
+  private int[] entryItem = new int[0];
+  private int entries;
+  private int[] tiles;
+
+  NonMaximumSuppression(NmsConfig config, float scoreThreshold) {
+    this.config = config;
+    this.scoreThreshold = scoreThreshold;
+  }
+
+  void suppress(Candidates candidates) {
+    suppress(candidates, null);
+  }
+
+  /**
+   * @param tiles the tile of each candidate, negative for the whole frame whose boxes are always
+   *              measured over the union, or null when the candidates come from a single image
+   */
+  void suppress(Candidates candidates, int[] tiles) {
+    this.tiles = tiles;
+    try {
+      int count = selectBest(candidates);
+      if (config.soft()) {
+        softSuppress(candidates, count);
+      } else if (count >= GRID_MIN_CANDIDATES) {
+        gridSuppress(candidates, count);
+      } else {
+        greedySuppress(candidates, count);
+      }
+    } finally {
+      this.tiles = null;
+    }
+  }
+
+  /**
+   * Fills {@code selected} with the indices of the best candidates, by decreasing score.
+   *
+   * @return the number of selected candidates
+   */
+  private int selectBest(Candidates candidates) {
+    int size = candidates.size;
+    int topK = config.topK();
+    if (topK <= 0 || topK >= size) {
+      selected = ensure(selected, size);
+      System.arraycopy(candidates.sortByScore(), 0, selected, 0, size);
+      return size;
+    }
+
+    // Min-heap on the score: the root is the worst of the best candidates seen so far
+    selected = ensure(selected, topK);
+    float[] scores = candidates.scores;
+    int heapSize = 0;
+    for (int i = 0; i < size; i++) {
+      if (heapSize < topK) {
+        selected[heapSize] = i;
+        siftUp(selected, heapSize++, scores);
+      } else if (scores[i] > scores[selected[0]]) {
+        selected[0] = i;
+        siftDown(selected, heapSize, scores);
+      }
+    }
+    // Popping the root moves the lowest scores to the end, leaving them sorted by decreasing score
+    for (int end = heapSize - 1; end > 0; end--) {
+      int root = selected[0];
+      selected[0] = selected[end];
+      selected[end] = root;
+      siftDown(selected, end, scores);
+    }
+    return heapSize;
+  }
+
+  private void greedySuppress(Candidates candidates, int count) {
+    for (int i = 0; i < count; i++) {
+      int idx = selected[i];
+      boolean keep = true;
+      for (int k = 0; k < candidates.keptCount && keep; k++) {
+        keep = !suppresses(candidates, candidates.kept[k], idx);
+      }
+      if (keep) {
+        candidates.keep(idx);
+      }
+    }
+  }
+
+  private void gridSuppress(Candidates candidates, int count) {
+    int minX = Integer.MAX_VALUE;
+    int minY = Integer.MAX_VALUE;
+    int maxX = Integer.MIN_VALUE;
+    int maxY = Integer.MIN_VALUE;
+    long sizeSum = 0;
+    for (int i = 0; i < count; i++) {
+      int idx = selected[i];
+      minX = Math.min(minX, candidates.lefts[idx]);
+      minY = Math.min(minY, candidates.tops[idx]);
+      maxX = Math.max(maxX, candidates.lefts[idx] + candidates.widths[idx]);
+      maxY = Math.max(maxY, candidates.tops[idx] + candidates.heights[idx]);
+      sizeSum += Math.max(candidates.widths[idx], candidates.heights[idx]);
+    }
+    int cellSize = (int) Math.max(GRID_MIN_CELL_SIZE, sizeSum / count);
+    cellSize = Math.max(cellSize, (Math.max(maxX - minX, maxY - minY) + 1)
+        / GRID_MAX_CELLS_PER_SIDE + 1);
+    int columns = (maxX - minX) / cellSize + 1;
+    int rows = (maxY - minY) / cellSize + 1;
+
+    cellHeads = ensure(cellHeads, columns * rows);
+    Arrays.fill(cellHeads, 0, columns * rows, -1);
+    entries = 0;
+
+    for (int i = 0; i < count; i++) {
+      int idx = selected[i];
+      int firstColumn = (candidates.lefts[idx] - minX) / cellSize;
+      int lastColumn = (candidates.lefts[idx] + candidates.widths[idx] - minX) / cellSize;
+      int firstRow = (candidates.tops[idx] - minY) / cellSize;
+      int lastRow = (candidates.tops[idx] + candidates.heights[idx] - minY) / cellSize;
+
+      boolean keep = true;
+      for (int row = firstRow; row <= lastRow && keep; row++) {
+        for (int column = firstColumn; column <= lastColumn && keep; column++) {
+          for (int entry = cellHeads[row * columns + column]; entry >= 0 && keep;
+              entry = entryNext[entry]) {
+            keep = !suppresses(candidates, entryItem[entry], idx);
+          }
+        }
+      }
+      if (keep) {
+        candidates.keep(idx);
+        for (int row = firstRow; row <= lastRow; row++) {
+          for (int column = firstColumn; column <= lastColumn; column++) {
+            addEntry(row * columns + column, idx);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Gaussian soft-NMS: overlapping boxes see their score decayed by {@code exp(-iou² / sigma)}
+   * and are dropped once under the score threshold.
+   */
+  private void softSuppress(Candidates candidates, int count) {
+    decayed = ensure(decayed, count);
+    for (int i = 0; i < count; i++) {
+      decayed[i] = candidates.scores[selected[i]];
+    }
+    int remaining = count;
+    while (remaining > 0) {
+      int best = 0;
+      for (int i = 1; i < remaining; i++) {
+        if (decayed[i] > decayed[best]) {
+          best = i;
+        }
+      }
+      if (decayed[best] <= scoreThreshold) {
+        return;
+      }
+      int idx = selected[best];
+      candidates.scores[idx] = decayed[best];
+      candidates.keep(idx);
+
+      remaining--;
+      selected[best] = selected[remaining];
+      decayed[best] = decayed[remaining];
+      for (int i = 0; i < remaining; i++) {
+        int other = selected[i];
+        if (!config.classAware() || candidates.classIds[other] == candidates.classIds[idx]) {
+          float iou = overlap(candidates, idx, other);
+          decayed[i] *= (float) Math.exp(-(iou * iou) / config.sigma());
+        }
+      }
+    }
+  }
+
+  private boolean suppresses(Candidates candidates, int kept, int candidate) {
+    return (!config.classAware() || candidates.classIds[kept] == candidates.classIds[candidate])
+        && overlap(candidates, kept, candidate) > config.threshold();
+  }
+
+  private float overlap(Candidates candidates, int a, int b) {
+    boolean acrossTiles = tiles != null && tiles[a] != tiles[b] && tiles[a] >= 0 && tiles[b] >= 0;
+    return acrossTiles ? intersectionOverSmaller(candidates, a, b)
+        : intersectionOverUnion(candidates, a, b);
+  }
+
+  static float intersectionOverUnion(Candidates candidates, int a, int b) {
+    int left = Math.max(candidates.lefts[a], candidates.lefts[b]);
+    int top = Math.max(candidates.tops[a], candidates.tops[b]);
+    int right = Math.min(candidates.lefts[a] + candidates.widths[a],
+        candidates.lefts[b] + candidates.widths[b]);
+    int bottom = Math.min(candidates.tops[a] + candidates.heights[a],
+        candidates.tops[b] + candidates.heights[b]);
+    if (right <= left || bottom <= top) {
+      return 0f;
+    }
+    float intersection = (float) (right - left) * (bottom - top);
+    float union = (float) candidates.widths[a] * candidates.heights[a]
+        + (float) candidates.widths[b] * candidates.heights[b] - intersection;
+    return union <= 0f ? 0f : intersection / union;
+  }
+
+  static float intersectionOverSmaller(Candidates candidates, int a, int b) {
+    int left = Math.max(candidates.lefts[a], candidates.lefts[b]);
+    int top = Math.max(candidates.tops[a], candidates.tops[b]);
+    int right = Math.min(candidates.lefts[a] + candidates.widths[a],
+        candidates.lefts[b] + candidates.widths[b]);
+    int bottom = Math.min(candidates.tops[a] + candidates.heights[a],
+        candidates.tops[b] + candidates.heights[b]);
+    if (right <= left || bottom <= top) {
+      return 0f;
+    }
+    float smaller = Math.min((float) candidates.widths[a] * candidates.heights[a],
+        (float) candidates.widths[b] * candidates.heights[b]);
+    return smaller <= 0f ? 0f : (float) (right - left) * (bottom - top) / smaller;
+  }
+
+  private void addEntry(int cell, int item) {
+    if (entries == entryItem.length) {
+      int capacity = Math.max(256, entries * 2);
+      entryItem = Arrays.copyOf(entryItem, capacity);
+      entryNext = Arrays.copyOf(entryNext, capacity);
+    }
+    entryItem[entries] = item;
+    entryNext[entries] = cellHeads[cell];
+    cellHeads[cell] = entries++;
+  }
+
+  private static void siftUp(int[] heap, int index, float[] scores) {
+    int item = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (scores[heap[parent]] <= scores[item]) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = item;
+  }
+
+  private static void siftDown(int[] heap, int size, float[] scores) {
+    int index = 0;
+    int item = heap[0];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && scores[heap[child + 1]] < scores[heap[child]]) {
+        child++;
+      }
+      if (scores[item] <= scores[heap[child]]) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = item;
+  }
+
+  private static int[] ensure(int[] array, int length) {
+    return array.length >= length ? array : new int[Math.max(length, array.length * 2)];
+  }
+
+  private static float[] ensure(float[] array, int length) {
+    return array.length >= length ? array : new float[Math.max(length, array.length * 2)];
+  }
+}
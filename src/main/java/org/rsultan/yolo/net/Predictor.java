@@ -0,0 +1,13 @@
+package org.rsultan.yolo.net;
+
+import java.util.List;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Anything able to run object detection on a frame: a single net, a pool or a batcher.
+ */
+public interface Predictor {
+
+  List<DetectionResult> predict(Mat frame);
+}
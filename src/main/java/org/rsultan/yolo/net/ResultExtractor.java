@@ -24,155 +24,247 @@
 package org.rsultan.yolo.net;
 
 import static java.util.stream.Collectors.toMap;
-import static java.util.stream.IntStream.range;
-import static org.bytedeco.opencv.global.opencv_core.doubleRand;
-import static org.bytedeco.opencv.global.opencv_dnn.NMSBoxes;
 import static org.bytedeco.opencv.helper.opencv_core.RGB;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
+import java.nio.FloatBuffer;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.stream.IntStream;
 import org.bytedeco.javacpp.FloatPointer;
-import org.bytedeco.javacpp.IntPointer;
-import org.bytedeco.javacpp.indexer.FloatIndexer;
 import org.bytedeco.opencv.opencv_core.Mat;
 import org.bytedeco.opencv.opencv_core.MatVector;
-import org.bytedeco.opencv.opencv_core.Rect;
-import org.bytedeco.opencv.opencv_core.RectVector;
 import org.bytedeco.opencv.opencv_core.Scalar;
-import org.bytedeco.opencv.opencv_text.FloatVector;
-import org.bytedeco.opencv.opencv_text.IntVector;
+import org.rsultan.yolo.net.config.NmsConfig;
+import org.rsultan.yolo.net.config.OutputLayout;
 import org.rsultan.yolo.result.DetectionResult;
 
 class ResultExtractor {
 
+  private static final double GOLDEN_RATIO_CONJUGATE = 0.618033988749895;
+  private static final double COLOR_SATURATION = 0.75;
+  private static final double COLOR_VALUE = 0.95;
+
   private final float confidenceThreshold;
-  private final float nmsThreshold;
   private final List<String> names;
   private final Map<String, Scalar> colors;
+  private final DecodeMode decodeMode;
+  private final OutputLayout layout;
+  private final ThreadLocal<Candidates> candidates = ThreadLocal.withInitial(Candidates::new);
+  private final ThreadLocal<NonMaximumSuppression> suppression;
 
-  public ResultExtractor(float confidenceThreshold, float nmsThreshold, List<String> names) {
+  public ResultExtractor(float confidenceThreshold, NmsConfig nmsConfig, List<String> names,
+      DecodeMode decodeMode, OutputLayout layout) {
     this.confidenceThreshold = confidenceThreshold;
-    this.nmsThreshold = nmsThreshold;
+    this.suppression = ThreadLocal.withInitial(
+        () -> new NonMaximumSuppression(nmsConfig, confidenceThreshold));
     this.names = names;
+    this.decodeMode = decodeMode;
+    this.layout = layout;
     this.colors = getColors(this.names);
   }
 
+  /**
+   * Gives each class the same color from one run to the next: hues are spread around the wheel
+   * by the golden ratio so that neighbouring class ids stay apart.
+   */
   private static Map<String, Scalar> getColors(List<String> names) {
-    try {
-      SecureRandom secureRandom = SecureRandom.getInstanceStrong();
-      return names.stream()
-          .map(name -> Map.entry(name,
-              RGB(secureRandom.nextDouble() * 255, secureRandom.nextDouble() * 255, secureRandom.nextDouble() * 255)))
-          .collect(toMap(Entry::getKey, Entry::getValue));
-    } catch (NoSuchAlgorithmException e) {
-      throw new RuntimeException(e);
-    }
+    return IntStream.range(0, names.size())
+        .mapToObj(index -> Map.entry(names.get(index), color(index)))
+        .collect(toMap(Entry::getKey, Entry::getValue, (first, second) -> first));
   }
 
-  public List<DetectionResult> getDetectionResults(Mat frame, MatVector outs) {
-    final IntVector classIds = new IntVector();
-    final FloatVector confidences = new FloatVector();
-    final RectVector boxes = new RectVector();
-
-    extractRelevantBoxes(frame, outs, classIds, confidences, boxes);
-
-    IntPointer indices = new IntPointer(confidences.size());
-    FloatPointer confidencesPointer = new FloatPointer(confidences.size());
+  private static Scalar color(int index) {
+    double hue = (index * GOLDEN_RATIO_CONJUGATE % 1) * 6;
+    int sector = (int) hue;
+    double fraction = hue - sector;
+    double value = 255 * COLOR_VALUE;
+    double low = value * (1 - COLOR_SATURATION);
+    double falling = value * (1 - COLOR_SATURATION * fraction);
+    double rising = value * (1 - COLOR_SATURATION * (1 - fraction));
+    return switch (sector) {
+      case 0 -> RGB(value, rising, low);
+      case 1 -> RGB(falling, value, low);
+      case 2 -> RGB(low, value, rising);
+      case 3 -> RGB(low, falling, value);
+      case 4 -> RGB(rising, low, value);
+      default -> RGB(value, low, falling);
+    };
+  }
 
-    removeOverlappingBoxes(confidences, boxes, indices, confidencesPointer);
+  /**
+   * @param letterbox where the frame was drawn in the net input
+   */
+  public List<DetectionResult> getDetectionResults(Letterbox letterbox, MatVector outs) {
+    final Candidates candidates = this.candidates.get();
+    candidates.clear();
 
-    var detections = range(0, (int) indices.limit()).mapToObj(i -> {
-      var idx = indices.get(i);
-      var box = boxes.get(idx);
-      var classId = classIds.get(idx);
+    extractRelevantBoxes(letterbox, outs, candidates);
+    suppression.get().suppress(candidates);
 
+    var detections = new DetectionResult[candidates.keptCount];
+    for (int i = 0; i < candidates.keptCount; i++) {
+      var idx = candidates.kept[i];
+      var classId = candidates.classIds[idx];
       var className = names.get(classId);
-      var detectionResult = new DetectionResult(classId, className, colors.get(className),
-          confidences.get(idx),
-          box);
-      box.releaseReference();
-      return detectionResult;
-    }).toList();
-
-    releaseReferences(classIds, confidences, boxes, indices, confidencesPointer);
+      detections[i] = new DetectionResult(classId, className, colors.get(className),
+          candidates.scores[idx],
+          candidates.lefts[idx], candidates.tops[idx],
+          candidates.widths[idx], candidates.heights[idx]);
+    }
+    return List.of(detections);
+  }
 
-    return detections;
+  private void extractRelevantBoxes(Letterbox letterbox, MatVector outs,
+      Candidates candidates) {
+    final int heads = (int) outs.size();
+    if (decodeMode == DecodeMode.PARALLEL) {
+      // The heads are created here, the workers only scan into the one they are given
+      var perHead = new Candidates[heads];
+      for (int i = 0; i < heads; ++i) {
+        perHead[i] = candidates.head(i);
+        perHead[i].clear();
+      }
+      IntStream.range(0, heads).parallel()
+          .forEach(i -> scanHead(outs.get(i), letterbox, perHead[i]));
+      for (Candidates head : perHead) {
+        candidates.addAll(head);
+      }
+    } else {
+      for (int i = 0; i < heads; ++i) {
+        scanHead(outs.get(i), letterbox, candidates);
+      }
+    }
   }
 
-  private static void releaseReferences(IntVector classIds, FloatVector confidences,
-      RectVector boxes,
-      IntPointer indices, FloatPointer confidencesPointer) {
-    indices.releaseReference();
-    confidencesPointer.releaseReference();
-    classIds.releaseReference();
-    confidences.releaseReference();
-    boxes.releaseReference();
+  private void scanHead(Mat result, Letterbox letterbox, Candidates candidates) {
+    // A single image output of an exported model is [1, rows, cols]
+    final int rows = result.dims() > 2 ? result.size(result.dims() - 2) : result.rows();
+    final int cols = result.dims() > 2 ? result.size(result.dims() - 1) : result.cols();
+    FloatBuffer data = asFloatBuffer(result, rows, cols);
+    // Darknet boxes are relative to the input, exported models give them in input pixels
+    final float xScale = layout == OutputLayout.DARKNET ? 1f : 1f / letterbox.inputWidth();
+    final float yScale = layout == OutputLayout.DARKNET ? 1f : 1f / letterbox.inputHeight();
+    switch (layout) {
+      case DARKNET, YOLOV5 -> {
+        checkLayout(layout == OutputLayout.DARKNET || cols == names.size() + 5, rows, cols);
+        if (decodeMode == DecodeMode.SCALAR) {
+          scanEveryRow(data, rows, cols, xScale, yScale, letterbox, candidates);
+        } else {
+          scanObjectRows(data, rows, cols, xScale, yScale, letterbox, candidates);
+        }
+      }
+      case YOLOV8 -> {
+        checkLayout(rows == names.size() + 4, rows, cols);
+        scanColumns(data, rows, cols, xScale, yScale, letterbox, candidates);
+      }
+    }
+    result.release();
   }
 
-  private void removeOverlappingBoxes(FloatVector confidences, RectVector boxes, IntPointer indices,
-      FloatPointer confidencesPointer) {
-    confidencesPointer.put(confidences.get());
-    NMSBoxes(boxes, confidencesPointer, confidenceThreshold, nmsThreshold, indices, 1.f, 0);
+  private void checkLayout(boolean expected, int rows, int cols) {
+    if (!expected) {
+      throw new IllegalStateException("A " + rows + "x" + cols + " output does not match the "
+          + layout + " layout with " + names.size() + " classes");
+    }
   }
 
-  private void extractRelevantBoxes(Mat frame, MatVector outs, IntVector classIds,
-      FloatVector confidences,
-      RectVector boxes) {
-    for (int i = 0; i < outs.size(); ++i) {
-      Mat result = outs.get(i);
-      FloatIndexer data = result.createIndexer();
-      for (int j = 0; j < result.rows(); j++) {
-        var minMaxLoc = getMinmaxLocResult(result, data, j);
-        if (minMaxLoc.maxScore() > confidenceThreshold) {
-          pushDetectedObject(frame, classIds, confidences, boxes, data, j, minMaxLoc);
+  private void scanEveryRow(FloatBuffer data, int rows, int cols, float xScale, float yScale,
+      Letterbox letterbox, Candidates candidates) {
+    for (int j = 0, row = 0; j < rows; j++, row += cols) {
+      int maxIndex = -1;
+      float maxScore = Float.MIN_VALUE;
+      for (int k = 5; k < cols; k++) {
+        float score = data.get(row + k);
+        if (score > maxScore) {
+          maxScore = score;
+          maxIndex = k - 5;
         }
       }
-      data.release();
-      result.release();
+      if (layout == OutputLayout.YOLOV5) {
+        maxScore *= data.get(row + 4);
+      }
+      if (maxScore > confidenceThreshold) {
+        addBox(candidates, maxIndex, maxScore, data.get(row) * xScale,
+            data.get(row + 1) * yScale, data.get(row + 2) * xScale, data.get(row + 3) * yScale,
+            letterbox);
+      }
     }
   }
 
-  private static MinmaxLocResult getMinmaxLocResult(Mat result, FloatIndexer data, int j) {
-    int maxIndex = -1;
-    float maxScore = Float.MIN_VALUE;
-    for (int k = 5; k < result.cols(); k++) {
-      float score = data.get(j, k);
-      if (score > maxScore) {
-        maxScore = score;
-        maxIndex = k - 5;
+  /**
+   * The score of a class is at most the objectness of its row (column 4), a row whose
+   * objectness is under the threshold cannot hold any class above it.
+   */
+  private void scanObjectRows(FloatBuffer data, int rows, int cols, float xScale, float yScale,
+      Letterbox letterbox, Candidates candidates) {
+    float[] values = candidates.row(cols);
+    for (int j = 0, row = 0; j < rows; j++, row += cols) {
+      float objectness = data.get(row + 4);
+      if (objectness <= confidenceThreshold) {
+        continue;
+      }
+      data.get(row, values, 0, cols);
+      int maxIndex = ArgMax.argMax(values, 5, cols);
+      if (maxIndex < 0) {
+        continue;
+      }
+      // Darknet class scores are already scaled by the objectness
+      float score = layout == OutputLayout.YOLOV5 ? values[maxIndex] * objectness
+          : values[maxIndex];
+      if (score > confidenceThreshold) {
+        addBox(candidates, maxIndex - 5, score, values[0] * xScale, values[1] * yScale,
+            values[2] * xScale, values[3] * yScale, letterbox);
       }
     }
-    return new MinmaxLocResult(maxIndex, maxScore);
   }
 
-  private record MinmaxLocResult(int maxIndex, float maxScore) {
+  /**
+   * Transposed outputs hold a box per column: each class row is folded into the best score of
+   * every column, then only the columns above the threshold have their box read.
+   */
+  private void scanColumns(FloatBuffer data, int rows, int cols, float xScale, float yScale,
+      Letterbox letterbox, Candidates candidates) {
+    float[] values = candidates.row(cols);
+    candidates.clearColumns(cols);
+    float[] best = candidates.columnScores;
+    int[] bestClasses = candidates.columnClasses;
+    for (int classId = 0; classId < rows - 4; classId++) {
+      data.get((4 + classId) * cols, values, 0, cols);
+      if (decodeMode == DecodeMode.SCALAR) {
+        for (int j = 0; j < cols; j++) {
+          if (values[j] > best[j]) {
+            best[j] = values[j];
+            bestClasses[j] = classId;
+          }
+        }
+      } else {
+        ArgMax.columnMax(values, classId, best, bestClasses, cols);
+      }
+    }
+    for (int j = 0; j < cols; j++) {
+      if (best[j] > confidenceThreshold) {
+        addBox(candidates, bestClasses[j], best[j], data.get(j) * xScale,
+            data.get(cols + j) * yScale, data.get(2 * cols + j) * xScale,
+            data.get(3 * cols + j) * yScale, letterbox);
+      }
+    }
+  }
 
+  private static void addBox(Candidates candidates, int classId, float score,
+      float centerXRatio, float centerYRatio, float widthRatio, float heightRatio,
+      Letterbox letterbox) {
+    int centerX = (int) letterbox.frameX(centerXRatio);
+    int centerY = (int) letterbox.frameY(centerYRatio);
+    int width = (int) letterbox.frameWidth(widthRatio);
+    int height = (int) letterbox.frameHeight(heightRatio);
+    candidates.add(classId, score, centerX - width / 2, centerY - height / 2, width, height);
   }
 
-  private static void pushDetectedObject(
-      Mat frame,
-      IntVector classIds,
-      FloatVector confidences,
-      RectVector boxes,
-      FloatIndexer data,
-      int j,
-      MinmaxLocResult result) {
-    int centerX = (int) (data.get(j, 0) * frame.cols());
-    int centerY = (int) (data.get(j, 1) * frame.rows());
-    int width = (int) (data.get(j, 2) * frame.cols());
-    int height = (int) (data.get(j, 3) * frame.rows());
-    int left = centerX - width / 2;
-    int top = centerY - height / 2;
-
-    classIds.push_back(result.maxIndex);
-    confidences.push_back(result.maxScore);
-
-    boxes.push_back(new Rect(left, top, width, height));
+  /**
+   * Reads the output data in place, the outputs of a forward pass are continuous float rows.
+   */
+  private static FloatBuffer asFloatBuffer(Mat result, int rows, int cols) {
+    return new FloatPointer(result.data()).capacity((long) rows * cols).asBuffer();
   }
 }
@@ -0,0 +1,186 @@
+package org.rsultan.yolo.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.rsultan.yolo.net.config.NmsConfig;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Cuts the frame into a grid of overlapping tiles, each one fed to the net at full resolution,
+ * so that small objects of large frames keep enough pixels to be detected.
+ * <p>
+ * Tiles either go through a single batched forward pass, or are spread across the pooled nets.
+ * The whole frame can be added as one more tile for the objects larger than a tile. Detections
+ * are moved back to frame coordinates then merged by a cross-tile suppression, which only
+ * measures the overlap over the smaller box between different tiles of the grid.
+ */
+public class TiledPredictor implements Predictor, AutoCloseable {
+
+  private final YoloNetPool pool;
+  private final int columns;
+  private final int rows;
+  private final float overlap;
+  private final boolean fullFrame;
+  private final boolean batch;
+  private final ExecutorService executor;
+  private final ThreadLocal<Merge> merges;
+  private volatile Layout layout;
+
+  /**
+   * @param overlap   the fraction of a tile shared with its neighbours
+   * @param fullFrame also detects on the whole frame
+   * @param batch     runs every tile in a single batched forward pass of one net, otherwise the
+   *                  tiles are spread across the pooled nets
+   */
+  public TiledPredictor(YoloNetPool pool, int columns, int rows, float overlap,
+      boolean fullFrame, boolean batch, NmsConfig nmsConfig, float confidenceThreshold) {
+    if (columns < 1 || rows < 1 || overlap < 0 || overlap >= 1) {
+      throw new IllegalArgumentException(
+          "Invalid tiling " + columns + "x" + rows + " with an overlap of " + overlap);
+    }
+    this.pool = pool;
+    this.columns = columns;
+    this.rows = rows;
+    this.overlap = overlap;
+    this.fullFrame = fullFrame;
+    this.batch = batch;
+    this.executor = batch ? null : Executors.newFixedThreadPool(pool.size(), runnable -> {
+      var thread = new Thread(runnable, "tile-predictor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.merges = ThreadLocal.withInitial(() -> new Merge(
+        new NonMaximumSuppression(nmsConfig, confidenceThreshold)));
+  }
+
+  @Override
+  public List<DetectionResult> predict(Mat frame) {
+    var tiles = layout(frame.cols(), frame.rows()).tiles();
+    var views = new ArrayList<Mat>(tiles.size());
+    try {
+      for (Rect tile : tiles) {
+        views.add(frame.apply(tile));
+      }
+      return merge(tiles, batch ? pool.apply(net -> net.predict(views)) : spread(views));
+    } finally {
+      views.forEach(Mat::close);
+    }
+  }
+
+  private List<List<DetectionResult>> spread(List<Mat> views) {
+    var futures = views.stream()
+        .map(view -> CompletableFuture.supplyAsync(() -> pool.predict(view), executor))
+        .toList();
+    return futures.stream().map(CompletableFuture::join).toList();
+  }
+
+  private List<DetectionResult> merge(List<Rect> tiles, List<List<DetectionResult>> detections) {
+    var merge = merges.get();
+    var candidates = merge.candidates;
+    var sources = merge.sources;
+    candidates.clear();
+    sources.clear();
+    int count = detections.stream().mapToInt(List::size).sum();
+    var origins = merge.origins(count);
+    for (int i = 0; i < tiles.size(); i++) {
+      int x = tiles.get(i).x();
+      int y = tiles.get(i).y();
+      // The whole frame comes last, its boxes are merged over the union like those of one tile
+      int origin = fullFrame && i == tiles.size() - 1 ? -1 : i;
+      for (DetectionResult result : detections.get(i)) {
+        origins[candidates.size] = origin;
+        candidates.add(result.classId(), result.confidence(), result.x() + x, result.y() + y,
+            result.width(), result.height());
+        sources.add(result);
+      }
+    }
+    merge.suppression.suppress(candidates, origins);
+
+    var merged = new DetectionResult[candidates.keptCount];
+    for (int i = 0; i < candidates.keptCount; i++) {
+      int idx = candidates.kept[i];
+      var source = sources.get(idx);
+      merged[i] = new DetectionResult(source.classId(), source.className(), source.color(),
+          candidates.scores[idx], candidates.lefts[idx], candidates.tops[idx],
+          candidates.widths[idx], candidates.heights[idx]);
+    }
+    sources.clear();
+    return List.of(merged);
+  }
+
+  private Layout layout(int width, int height) {
+    var current = layout;
+    if (current == null || current.width() != width || current.height() != height) {
+      current = new Layout(width, height, tiles(width, height));
+      layout = current;
+    }
+    return current;
+  }
+
+  /**
+   * Tiles are as large as needed for the grid to cover the frame with the requested overlap,
+   * the last ones of a row or column are pushed back inside the frame.
+   */
+  private List<Rect> tiles(int width, int height) {
+    int tileWidth = (int) Math.ceil(width / (columns - (columns - 1) * overlap));
+    int tileHeight = (int) Math.ceil(height / (rows - (rows - 1) * overlap));
+    int strideX = Math.round(tileWidth * (1 - overlap));
+    int strideY = Math.round(tileHeight * (1 - overlap));
+    var tiles = new ArrayList<Rect>();
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        int x = Math.min(column * strideX, width - tileWidth);
+        int y = Math.min(row * strideY, height - tileHeight);
+        tiles.add(new Rect(x, y, Math.min(tileWidth, width), Math.min(tileHeight, height)));
+      }
+    }
+    if (fullFrame) {
+      tiles.add(new Rect(0, 0, width, height));
+    }
+    return List.copyOf(tiles);
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "tiles[" + columns + "x" + rows + (fullFrame ? "+full" : "")
+        + (batch ? ", batched" : ", spread") + "]";
+  }
+
+  private record Layout(int width, int height, List<Rect> tiles) {
+
+  }
+
+  private static final class Merge {
+
+    private final NonMaximumSuppression suppression;
+    private final Candidates candidates = new Candidates();
+    private final List<DetectionResult> sources = new ArrayList<>();
+    private int[] origins = new int[0];
+
+    private Merge(NonMaximumSuppression suppression) {
+      this.suppression = suppression;
+    }
+
+    /**
+     * @return the tile of each candidate, for at least the given count of them
+     */
+    private int[] origins(int count) {
+      if (origins.length < count) {
+        origins = new int[count];
+      }
+      return origins;
+    }
+  }
+}
@@ -27,65 +27,80 @@ import org.bytedeco.opencv.global.opencv_dnn;
 import org.bytedeco.opencv.opencv_core.*;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.FloatBuffer;
 import java.util.List;
+import java.util.stream.IntStream;
+import org.bytedeco.javacpp.FloatPointer;
 import org.bytedeco.opencv.opencv_dnn.Net;
+import org.rsultan.video.BufferPool;
+import org.rsultan.video.BufferPool.Shape;
 import org.rsultan.video.Constants;
 import org.rsultan.yolo.net.config.NetConfig;
+import org.rsultan.yolo.net.config.NmsConfig;
+import org.rsultan.yolo.net.config.Precision;
 import org.rsultan.yolo.result.DetectionResult;
 
 import static org.bytedeco.opencv.global.opencv_core.CV_32F;
 import static org.bytedeco.opencv.global.opencv_core.getCudaEnabledDeviceCount;
 import static org.bytedeco.opencv.global.opencv_dnn.*;
-import static org.bytedeco.opencv.global.opencv_imgcodecs.imread;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMREAD_COLOR;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imdecode;
 
-public class YoloNet {
+public class YoloNet implements Predictor {
 
   private final int width;
   private final int height;
   private final boolean cudaEnabled;
-  private final NetConfig netConfig;
+  private final Precision precision;
+  // Dropped once the net is built, a shared config holds the whole model in memory
+  private NetConfig netConfig;
   private Net net;
   private StringVector outNames;
   private final ResultExtractor resultExtractor;
+  private final BufferPool bufferPool;
+  private final LetterboxPreprocessor preprocessor;
+  // The outputs are views on the net own blobs, valid until the next forward pass
+  private final MatVector outs = new MatVector();
 
   public YoloNet(NetConfig netConfig,
       int width, int height,
-      float confidenceThreshold, float nmsThreshold, boolean cudaEnabled) {
+      float confidenceThreshold, NmsConfig nmsConfig, boolean cudaEnabled, Precision precision,
+      DecodeMode decodeMode, boolean letterbox, BufferPool bufferPool) {
     this.netConfig = netConfig;
     this.width = width;
     this.height = height;
     this.cudaEnabled = cudaEnabled;
-    resultExtractor = new ResultExtractor(confidenceThreshold, nmsThreshold, netConfig.getNames());
+    this.precision = precision;
+    this.bufferPool = bufferPool;
+    this.preprocessor = new LetterboxPreprocessor(width, height, letterbox);
+    resultExtractor = new ResultExtractor(confidenceThreshold, nmsConfig, netConfig.getNames(),
+        decodeMode, netConfig.outputLayout());
 
   }
 
   public YoloNet initialize() {
     net = netConfig.buildNet();
+    netConfig = null;
 
     outNames = net.getUnconnectedOutLayersNames();
 
     if (cudaEnabled && getCudaEnabledDeviceCount() > 0) {
       net.setPreferableBackend(opencv_dnn.DNN_BACKEND_CUDA);
-      net.setPreferableTarget(opencv_dnn.DNN_TARGET_CUDA);
+      net.setPreferableTarget(precision.cudaTarget());
     } else {
       net.setPreferableBackend(DNN_BACKEND_OPENCV);
-      net.setPreferableTarget(DNN_TARGET_CPU);
+      net.setPreferableTarget(precision.cpuTarget());
     }
 
     boolean netIsNotEmpty = !net.empty();
     if (netIsNotEmpty) {
       // We arbitrarily initialize the first image since the first forward takes time
-      Path tmpFile;
-      try {
-        tmpFile = Files.createTempFile(null, "jpg");
-        Files.write(tmpFile,
-            getClass().getClassLoader().getResourceAsStream(Constants.IMAGE).readAllBytes());
-        var image = imread(tmpFile.toString());
-        netForward(getBlobFromImage(image)).releaseReference();
-        image.release();
-        Files.deleteIfExists(tmpFile);
+      try (var resource = getClass().getClassLoader().getResourceAsStream(Constants.IMAGE);
+          var encoded = new Mat(resource.readAllBytes());
+          var image = imdecode(encoded, IMREAD_COLOR)) {
+        var tensor = preprocess(List.of(image), new Letterbox[1]);
+        netForward(tensor);
+        bufferPool.release(tensor);
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
@@ -95,31 +110,79 @@ public class YoloNet {
 
   private MatVector netForward(Mat frame) {
     net.setInput(frame);
-    MatVector outs = new MatVector(outNames.size());
     net.forward(outs, outNames);
     return outs;
   }
 
-  private Mat getBlobFromImage(Mat frame) {
-    return blobFromImage(frame,
-        1 / 255.0,
-        new Size(width, height),
-        new Scalar(0.0),
-        true, false, CV_32F);
+  /**
+   * Draws the frames in a pooled NCHW input tensor, one image per frame.
+   *
+   * @param letterboxes receives where each frame was drawn
+   */
+  private Mat preprocess(List<Mat> frames, Letterbox[] letterboxes) {
+    Mat tensor = bufferPool.acquire(new Shape(CV_32F, frames.size(), 3, height, width));
+    FloatBuffer data = new FloatPointer(tensor.data())
+        .capacity((long) frames.size() * preprocessor.imageSize()).asBuffer();
+    for (int i = 0; i < frames.size(); i++) {
+      letterboxes[i] = preprocessor.fill(frames.get(i), data, i);
+    }
+    return tensor;
   }
 
+  @Override
   public synchronized List<DetectionResult> predict(Mat frame) {
-    Mat image = getBlobFromImage(frame);
-    var outs = netForward(image);
+    var letterboxes = new Letterbox[1];
+    Mat tensor = preprocess(List.of(frame), letterboxes);
+    var outs = netForward(tensor);
 
-    var result = resultExtractor.getDetectionResults(frame, outs);
+    var result = resultExtractor.getDetectionResults(letterboxes[0], outs);
 
-    outs.releaseReference();
-    image.release();
+    bufferPool.release(tensor);
 
     return result;
   }
 
+  /**
+   * Runs a single forward pass over all the frames stacked in one NCHW blob.
+   *
+   * @return the detections of each frame, in the order of the given frames
+   */
+  public synchronized List<List<DetectionResult>> predict(List<Mat> frames) {
+    if (frames.size() == 1) {
+      return List.of(predict(frames.get(0)));
+    }
+    var letterboxes = new Letterbox[frames.size()];
+    Mat tensor = preprocess(frames, letterboxes);
+    var outs = netForward(tensor);
+
+    var results = IntStream.range(0, frames.size()).mapToObj(index -> {
+      var slice = sliceBatch(outs, index, frames.size());
+      var result = resultExtractor.getDetectionResults(letterboxes[index], slice);
+      slice.releaseReference();
+      return result;
+    }).toList();
+
+    bufferPool.release(tensor);
+
+    return results;
+  }
+
+  private static MatVector sliceBatch(MatVector outs, int index, int batchSize) {
+    var slice = new MatVector(outs.size());
+    for (int i = 0; i < outs.size(); i++) {
+      Mat out = outs.get(i);
+      if (out.dims() > 2) {
+        // [batch, rows, cols] outputs
+        slice.put(i, new Mat(out.size(1), out.size(2), out.type(), out.ptr(index)));
+      } else {
+        // Darknet region layers stack the rows of every image of the batch
+        int rows = out.rows() / batchSize;
+        slice.put(i, out.rowRange(index * rows, (index + 1) * rows));
+      }
+    }
+    return slice;
+  }
+
   public void stop() {
     net.close();
   }
@@ -0,0 +1,90 @@
+package org.rsultan.yolo.net;
+
+import static org.bytedeco.opencv.global.opencv_core.setNumThreads;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Fixed set of independently initialized {@link YoloNet}s, each one is used by a single thread at
+ * a time through {@link #checkout()} and {@link #checkin(YoloNet)}.
+ */
+public class YoloNetPool implements Predictor, AutoCloseable {
+
+  private final List<YoloNet> nets;
+  private final BlockingQueue<YoloNet> available;
+
+  /**
+   * @param size           the number of nets to build
+   * @param threadsPerNet  the OpenCV thread count, 0 for the available cores divided by the
+   *                       number of nets. OpenCV only has a process-wide setting, so this is the
+   *                       size of the pool every forward pass draws from, not a limit per net
+   * @param netFactory     builds the net of the given index
+   */
+  public YoloNetPool(int size, int threadsPerNet, IntFunction<YoloNet> netFactory) {
+    if (size < 1) {
+      throw new IllegalArgumentException("The pool needs at least one net: " + size);
+    }
+    // OpenCV only has a process-wide setting, every net of the pool gets the same share
+    setNumThreads(threadsPerNet > 0 ? threadsPerNet
+        : Math.max(1, Runtime.getRuntime().availableProcessors() / size));
+    // Nets are independent, they are built and warmed up concurrently
+    this.nets = IntStream.range(0, size).parallel().mapToObj(netFactory).toList();
+    this.available = new ArrayBlockingQueue<>(size, false, nets);
+  }
+
+  public YoloNet checkout() throws InterruptedException {
+    return available.take();
+  }
+
+  public Optional<YoloNet> tryCheckout() {
+    return Optional.ofNullable(available.poll());
+  }
+
+  public void checkin(YoloNet yoloNet) {
+    available.offer(yoloNet);
+  }
+
+  /**
+   * Runs the given call on the first net available, waiting for one if needed.
+   */
+  public <T> T apply(Function<YoloNet, T> call) {
+    YoloNet yoloNet;
+    try {
+      yoloNet = checkout();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    try {
+      return call.apply(yoloNet);
+    } finally {
+      checkin(yoloNet);
+    }
+  }
+
+  @Override
+  public List<DetectionResult> predict(Mat frame) {
+    return apply(yoloNet -> yoloNet.predict(frame));
+  }
+
+  public int size() {
+    return nets.size();
+  }
+
+  public int available() {
+    return available.size();
+  }
+
+  @Override
+  public void close() {
+    nets.forEach(YoloNet::stop);
+  }
+}
@@ -35,4 +35,27 @@ public record DarknetConfig(String configPath, String weightsPath, String namesP
       throw new RuntimeException(e);
     }
   }
+
+  @Override
+  public NetConfig shared() {
+    try {
+      return new Shared(
+          Files.readAllBytes(Paths.get(configPath)),
+          Files.readAllBytes(Paths.get(weightsPath)),
+          getNames());
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private record Shared(byte[] config, byte[] weights, List<String> names) implements NetConfig {
+
+    public Net buildNet() {
+      return readNetFromDarknet(config, weights);
+    }
+
+    public List<String> getNames() {
+      return names;
+    }
+  }
 }
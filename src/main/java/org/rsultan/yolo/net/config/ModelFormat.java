@@ -1,11 +1,16 @@
 package org.rsultan.yolo.net.config;
 
 public enum ModelFormat {
-  DARKNET;
+  DARKNET,
+  ONNX;
 
-  public NetConfig toConfig(String modelPath) {
+  /**
+   * @param onnxLayout the output layout of an ONNX export, Darknet models have their own
+   */
+  public NetConfig toConfig(String modelPath, OutputLayout onnxLayout) {
     return switch (this) {
       case DARKNET -> new DarknetConfig(modelPath);
+      case ONNX -> new OnnxConfig(modelPath, onnxLayout);
     };
   }
 }
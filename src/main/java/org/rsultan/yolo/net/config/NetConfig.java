@@ -9,4 +9,15 @@ public interface NetConfig {
 
   List<String> getNames();
 
+  /**
+   * @return a config reading the model files once, for building several nets from it
+   */
+  default NetConfig shared() {
+    return this;
+  }
+
+  default OutputLayout outputLayout() {
+    return OutputLayout.DARKNET;
+  }
+
 }
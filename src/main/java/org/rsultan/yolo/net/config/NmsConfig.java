@@ -0,0 +1,15 @@
+package org.rsultan.yolo.net.config;
+
+/**
+ * Non-maximum suppression settings.
+ *
+ * @param threshold  the overlap (IoU) above which the lower scored box is suppressed
+ * @param classAware only boxes of the same class suppress each other
+ * @param topK       the number of best scored boxes kept before suppression, 0 keeps them all
+ * @param soft       decays the score of overlapping boxes instead of removing them
+ * @param sigma      the gaussian spread of the soft decay
+ */
+public record NmsConfig(float threshold, boolean classAware, int topK, boolean soft,
+                        float sigma) {
+
+}
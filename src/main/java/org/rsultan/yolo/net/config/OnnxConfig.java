@@ -0,0 +1,58 @@
+package org.rsultan.yolo.net.config;
+
+import static org.bytedeco.opencv.global.opencv_dnn.readNetFromONNX;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.opencv.opencv_dnn.Net;
+
+public record OnnxConfig(String modelPath, String namesPath, OutputLayout outputLayout) implements
+    NetConfig {
+
+  public OnnxConfig(String modelPath, OutputLayout outputLayout) {
+    this(
+        modelPath + File.separator + "model.onnx",
+        modelPath + File.separator + "names.txt",
+        outputLayout
+    );
+  }
+
+  public Net buildNet() {
+    return readNetFromONNX(Paths.get(modelPath).toAbsolutePath().toString());
+  }
+
+  public List<String> getNames() {
+    try {
+      return Files.readAllLines(Paths.get(namesPath));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public NetConfig shared() {
+    try {
+      return new Shared(Files.readAllBytes(Paths.get(modelPath)), getNames(), outputLayout);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private record Shared(byte[] model, List<String> names, OutputLayout outputLayout) implements
+      NetConfig {
+
+    public Net buildNet() {
+      try (var buffer = new BytePointer(model)) {
+        return readNetFromONNX(buffer, model.length);
+      }
+    }
+
+    public List<String> getNames() {
+      return names;
+    }
+  }
+}
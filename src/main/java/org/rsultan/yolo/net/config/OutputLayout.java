@@ -0,0 +1,20 @@
+package org.rsultan.yolo.net.config;
+
+/**
+ * How the boxes are laid out in the net outputs.
+ */
+public enum OutputLayout {
+  /**
+   * One row per box: center and size relative to the input, objectness, then class scores
+   * already scaled by the objectness.
+   */
+  DARKNET,
+  /**
+   * One row per box: center and size in input pixels, objectness, then raw class scores.
+   */
+  YOLOV5,
+  /**
+   * One column per box: center and size in input pixels then class scores, no objectness.
+   */
+  YOLOV8
+}
@@ -0,0 +1,32 @@
+package org.rsultan.yolo.net.config;
+
+import static org.bytedeco.opencv.global.opencv_dnn.DNN_TARGET_CPU;
+import static org.bytedeco.opencv.global.opencv_dnn.DNN_TARGET_CPU_FP16;
+import static org.bytedeco.opencv.global.opencv_dnn.DNN_TARGET_CUDA;
+import static org.bytedeco.opencv.global.opencv_dnn.DNN_TARGET_CUDA_FP16;
+
+/**
+ * The floating point precision the forward passes run with.
+ * <p>
+ * OpenCV falls back to FP32 on CPUs without native half precision arithmetic.
+ */
+public enum Precision {
+  FP32(DNN_TARGET_CPU, DNN_TARGET_CUDA),
+  FP16(DNN_TARGET_CPU_FP16, DNN_TARGET_CUDA_FP16);
+
+  private final int cpuTarget;
+  private final int cudaTarget;
+
+  Precision(int cpuTarget, int cudaTarget) {
+    this.cpuTarget = cpuTarget;
+    this.cudaTarget = cudaTarget;
+  }
+
+  public int cpuTarget() {
+    return cpuTarget;
+  }
+
+  public int cudaTarget() {
+    return cudaTarget;
+  }
+}
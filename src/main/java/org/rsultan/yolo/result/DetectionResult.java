@@ -5,10 +5,20 @@ import org.bytedeco.opencv.opencv_core.Scalar;
 
 /**
  * Dataclass for object detection result.
+ *
+ * @param trackId   the identifier of the tracked object, {@link #UNTRACKED} for a raw detection
+ * @param predicted the box was moved ahead by the tracker, the net did not detect it on this frame
  */
 public record DetectionResult(int classId, String className, Scalar color,
                               float confidence, int x, int y,
-                              int width, int height) {
+                              int width, int height, int trackId, boolean predicted) {
+
+  public static final int UNTRACKED = -1;
+
+  public DetectionResult(int classId, String className, Scalar color, float confidence, int x,
+      int y, int width, int height) {
+    this(classId, className, color, confidence, x, y, width, height, UNTRACKED, false);
+  }
 
   public DetectionResult(int clsId, String className, Scalar scalar, float confidence, Rect box) {
     this(clsId, className, scalar, confidence, box.x(), box.y(), box.width(), box.height());
@@ -0,0 +1,129 @@
+package org.rsultan.yolo.track;
+
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * A tracked object: a constant velocity Kalman filter over the box center and size.
+ * <p>
+ * With the noise of every coordinate independent from the others, the filter splits into four
+ * position/velocity filters of two states each. Noises are proportional to the box height, so
+ * that near and far objects are tracked alike.
+ */
+class Track {
+
+  private static final float POSITION_WEIGHT = 1f / 20;
+  private static final float VELOCITY_WEIGHT = 1f / 160;
+  private static final int CENTER_X = 0;
+  private static final int CENTER_Y = 1;
+  private static final int WIDTH = 2;
+  private static final int HEIGHT = 3;
+  private static final int COORDINATES = 4;
+
+  private final int id;
+  private final float[] position = new float[COORDINATES];
+  private final float[] velocity = new float[COORDINATES];
+  private final float[] positionVariance = new float[COORDINATES];
+  private final float[] covariance = new float[COORDINATES];
+  private final float[] velocityVariance = new float[COORDINATES];
+  private DetectionResult detection;
+  private int misses;
+  private boolean observed = true;
+
+  Track(int id, DetectionResult detection) {
+    this.id = id;
+    this.detection = detection;
+    measure(detection, position);
+    float height = position[HEIGHT];
+    for (int i = 0; i < COORDINATES; i++) {
+      positionVariance[i] = square(2 * POSITION_WEIGHT * height);
+      velocityVariance[i] = square(10 * VELOCITY_WEIGHT * height);
+    }
+  }
+
+  /**
+   * Moves the box one frame ahead.
+   */
+  void predict() {
+    observed = false;
+    float positionNoise = square(POSITION_WEIGHT * position[HEIGHT]);
+    float velocityNoise = square(VELOCITY_WEIGHT * position[HEIGHT]);
+    for (int i = 0; i < COORDINATES; i++) {
+      position[i] += velocity[i];
+      positionVariance[i] += 2 * covariance[i] + velocityVariance[i] + positionNoise;
+      covariance[i] += velocityVariance[i];
+      velocityVariance[i] += velocityNoise;
+    }
+    position[WIDTH] = Math.max(1, position[WIDTH]);
+    position[HEIGHT] = Math.max(1, position[HEIGHT]);
+  }
+
+  void update(DetectionResult detection, float[] measured) {
+    this.detection = detection;
+    misses = 0;
+    observed = true;
+    measure(detection, measured);
+    float measurementNoise = square(POSITION_WEIGHT * position[HEIGHT]);
+    for (int i = 0; i < COORDINATES; i++) {
+      float innovation = measured[i] - position[i];
+      float positionGain = positionVariance[i] / (positionVariance[i] + measurementNoise);
+      float velocityGain = covariance[i] / (positionVariance[i] + measurementNoise);
+      position[i] += positionGain * innovation;
+      velocity[i] += velocityGain * innovation;
+      velocityVariance[i] -= velocityGain * covariance[i];
+      positionVariance[i] *= 1 - positionGain;
+      covariance[i] *= 1 - positionGain;
+    }
+  }
+
+  /**
+   * @return the number of inferences in a row without a matching detection
+   */
+  int miss() {
+    return ++misses;
+  }
+
+  int classId() {
+    return detection.classId();
+  }
+
+  float left() {
+    return position[CENTER_X] - position[WIDTH] / 2;
+  }
+
+  float top() {
+    return position[CENTER_Y] - position[HEIGHT] / 2;
+  }
+
+  float width() {
+    return position[WIDTH];
+  }
+
+  float height() {
+    return position[HEIGHT];
+  }
+
+  /**
+   * @return the detection itself on the frame it was matched, the predicted box otherwise
+   */
+  DetectionResult toResult() {
+    if (observed) {
+      return new DetectionResult(detection.classId(), detection.className(), detection.color(),
+          detection.confidence(), detection.x(), detection.y(), detection.width(),
+          detection.height(), id, false);
+    }
+    return new DetectionResult(detection.classId(), detection.className(), detection.color(),
+        detection.confidence(), Math.round(left()), Math.round(top()), Math.round(width()),
+        Math.round(height()), id, true);
+  }
+
+  private static void measure(DetectionResult detection, float[] measured) {
+    measured[CENTER_X] = detection.x() + detection.width() / 2f;
+    measured[CENTER_Y] = detection.y() + detection.height() / 2f;
+    measured[WIDTH] = detection.width();
+    measured[HEIGHT] = detection.height();
+  }
+
+  private static float square(float value) {
+    return value * value;
+  }
+}
@@ -0,0 +1,127 @@
+package org.rsultan.yolo.track;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.rsultan.yolo.net.InferenceScheduler.Detections;
+import org.rsultan.yolo.result.DetectionResult;
+
+/**
+ * Carries detections from one inference to the next so boxes keep moving in between, and gives
+ * every object a stable identifier.
+ * <p>
+ * Every frame moves the tracks one step ahead, new detections are then greedily associated to
+ * the tracks of the same class by decreasing overlap (IoU). Unmatched detections start new
+ * tracks, tracks left unmatched for too many inferences are dropped. Instances belong to a
+ * single stream and are not meant to be shared between threads.
+ */
+public class Tracker {
+
+  private final TrackerConfig config;
+  private final List<Track> tracks = new ArrayList<>();
+  private final float[] measured = new float[4];
+  private long[] pairs = new long[0];
+  private long lastSequence = -1;
+  private int nextId;
+
+  public Tracker(TrackerConfig config) {
+    this.config = config;
+  }
+
+  /**
+   * Moves every track one frame ahead, then corrects them if the detections are new.
+   *
+   * @return the tracked boxes as of the current frame
+   */
+  public List<DetectionResult> track(Detections latest) {
+    tracks.forEach(Track::predict);
+    if (latest.sequence() > lastSequence) {
+      lastSequence = latest.sequence();
+      update(latest.results());
+    }
+    var results = new DetectionResult[tracks.size()];
+    for (int i = 0; i < results.length; i++) {
+      results[i] = tracks.get(i).toResult();
+    }
+    return List.of(results);
+  }
+
+  private void update(List<DetectionResult> detections) {
+    var matchedTracks = new boolean[tracks.size()];
+    var matchedDetections = new boolean[detections.size()];
+    int count = candidatePairs(detections);
+    for (int i = 0; i < count; i++) {
+      int track = (int) (pairs[i] >>> 16) & 0xFFFF;
+      int detection = (int) pairs[i] & 0xFFFF;
+      if (!matchedTracks[track] && !matchedDetections[detection]) {
+        matchedTracks[track] = true;
+        matchedDetections[detection] = true;
+        tracks.get(track).update(detections.get(detection), measured);
+      }
+    }
+
+    var survivors = new ArrayList<Track>(tracks.size() + detections.size());
+    for (int i = 0; i < tracks.size(); i++) {
+      if (matchedTracks[i] || tracks.get(i).miss() <= config.maxMisses()) {
+        survivors.add(tracks.get(i));
+      }
+    }
+    for (int i = 0; i < detections.size(); i++) {
+      if (!matchedDetections[i]) {
+        survivors.add(new Track(nextId++, detections.get(i)));
+      }
+    }
+    tracks.clear();
+    tracks.addAll(survivors);
+  }
+
+  /**
+   * Packs the overlapping track/detection pairs as {@code iou bits | track | detection}, sorted
+   * by decreasing overlap.
+   */
+  private int candidatePairs(List<DetectionResult> detections) {
+    int count = 0;
+    if (pairs.length < tracks.size() * detections.size()) {
+      pairs = new long[tracks.size() * detections.size()];
+    }
+    for (int t = 0; t < tracks.size() && t <= 0xFFFF; t++) {
+      var track = tracks.get(t);
+      for (int d = 0; d < detections.size() && d <= 0xFFFF; d++) {
+        var detection = detections.get(d);
+        if (detection.classId() != track.classId()) {
+          continue;
+        }
+        float iou = iou(track, detection);
+        if (iou >= config.iouThreshold() && iou > 0) {
+          pairs[count++] = ((long) Float.floatToIntBits(iou) << 32) | ((long) t << 16) | d;
+        }
+      }
+    }
+    Arrays.sort(pairs, 0, count);
+    for (int i = 0, j = count - 1; i < j; i++, j--) {
+      long swap = pairs[i];
+      pairs[i] = pairs[j];
+      pairs[j] = swap;
+    }
+    return count;
+  }
+
+  private static float iou(Track track, DetectionResult detection) {
+    float left = Math.max(track.left(), detection.x());
+    float top = Math.max(track.top(), detection.y());
+    float right = Math.min(track.left() + track.width(), detection.x() + detection.width());
+    float bottom = Math.min(track.top() + track.height(), detection.y() + detection.height());
+    if (right <= left || bottom <= top) {
+      return 0;
+    }
+    float intersection = (right - left) * (bottom - top);
+    float union = track.width() * track.height()
+        + (float) detection.width() * detection.height() - intersection;
+    return intersection / union;
+  }
+
+  @Override
+  public String toString() {
+    return "tracks[live=" + tracks.size() + ", created=" + nextId + "]";
+  }
+}
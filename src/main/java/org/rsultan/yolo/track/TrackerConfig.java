@@ -0,0 +1,11 @@
+package org.rsultan.yolo.track;
+
+/**
+ * Tracking settings.
+ *
+ * @param iouThreshold the overlap (IoU) above which a detection continues a track
+ * @param maxMisses    the number of inferences a track survives without a matching detection
+ */
+public record TrackerConfig(float iouThreshold, int maxMisses) {
+
+}
@@ -0,0 +1,92 @@
+package org.rsultan.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.rsultan.metadata.MetadataFormat.Scratch;
+import org.rsultan.yolo.result.DetectionResult;
+
+class MappedDetectionLogTest {
+
+  @TempDir
+  Path directory;
+
+  @ParameterizedTest
+  @EnumSource(MetadataFormat.class)
+  void appendsAfterAClosedLog(MetadataFormat format) throws IOException {
+    var path = directory.resolve("log");
+    try (var log = new MappedDetectionLog(path, format, 1000)) {
+      write(log, 0);
+      write(log, 1);
+    }
+    try (var log = new MappedDetectionLog(path, format, 1000)) {
+      write(log, 2);
+    }
+    assertArrayEquals(records(format, 0, 1, 2), Files.readAllBytes(path));
+  }
+
+  /**
+   * A crash leaves the zeros of the last mapped region after the records.
+   */
+  @ParameterizedTest
+  @EnumSource(MetadataFormat.class)
+  void appendsAfterTheLastRecordOfACrashedLog(MetadataFormat format) throws IOException {
+    var path = directory.resolve("log");
+    var crashed = new ByteArrayOutputStream();
+    crashed.write(records(format, 0, 1));
+    crashed.write(new byte[4096]);
+    Files.write(path, crashed.toByteArray());
+
+    try (var log = new MappedDetectionLog(path, format, 1000)) {
+      write(log, 2);
+    }
+    assertArrayEquals(records(format, 0, 1, 2), Files.readAllBytes(path));
+  }
+
+  @Test
+  void dropsAJsonLineCutShort() throws IOException {
+    var path = directory.resolve("log");
+    var first = records(MetadataFormat.JSON, 0);
+    var crashed = new ByteArrayOutputStream();
+    crashed.write(first);
+    crashed.write(records(MetadataFormat.JSON, 1), 0, 20);
+    crashed.write(new byte[4096]);
+    Files.write(path, crashed.toByteArray());
+
+    try (var log = new MappedDetectionLog(path, MetadataFormat.JSON, 1000)) {
+      write(log, 2);
+    }
+    assertArrayEquals(records(MetadataFormat.JSON, 0, 2), Files.readAllBytes(path));
+  }
+
+  private static void write(DetectionSink log, int frame) {
+    log.write("door", frame, 40_000L * frame, detections(frame));
+  }
+
+  private static byte[] records(MetadataFormat format, int... frames) {
+    var bytes = new ByteArrayOutputStream();
+    var scratch = new Scratch();
+    for (int frame : frames) {
+      format.encode(scratch, "door", frame, 40_000L * frame, detections(frame));
+      var buffer = scratch.buffer;
+      bytes.write(buffer.array(), buffer.position(), buffer.remaining());
+    }
+    return bytes.toByteArray();
+  }
+
+  private static List<DetectionResult> detections(int frame) {
+    var detections = new DetectionResult[frame + 1];
+    Arrays.setAll(detections, i -> new DetectionResult(i, "person", null, 0.5f + i / 10f,
+        10 * i, 20 * frame, 30, 40, i, false));
+    return List.of(detections);
+  }
+}
@@ -0,0 +1,63 @@
+package org.rsultan.offline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.rsultan.offline.ArchiveSplitter.Span;
+
+class ArchiveSplitterTest {
+
+  private static final long FRAME_MICROS = 40_000;
+  private static final int FRAMES = 30;
+  private static final int GROUP = 10;
+
+  @Test
+  void startsSpansOnKeyframesAndNumbersFramesInPresentationOrder() {
+    var spans = ArchiveSplitter.spans(keyframes(), decodingOrder(), FRAMES, 3);
+    assertEquals(List.of(
+        new Span(0, 0, 10 * FRAME_MICROS, 0),
+        new Span(1, 10 * FRAME_MICROS, 20 * FRAME_MICROS, 10),
+        new Span(2, 20 * FRAME_MICROS, Long.MAX_VALUE, 20)), spans);
+  }
+
+  @Test
+  void picksTheFirstKeyframeAfterEachTarget() {
+    // The middle of the file is at frame 14.5, the next keyframe is frame 20
+    var spans = ArchiveSplitter.spans(keyframes(), decodingOrder(), FRAMES, 2);
+    assertEquals(List.of(
+        new Span(0, 0, 20 * FRAME_MICROS, 0),
+        new Span(1, 20 * FRAME_MICROS, Long.MAX_VALUE, 20)), spans);
+  }
+
+  @Test
+  void returnsFewerSpansThanKeyframesAllow() {
+    assertEquals(3, ArchiveSplitter.spans(keyframes(), decodingOrder(), FRAMES, 8).size());
+    assertEquals(List.of(new Span(0, 0, Long.MAX_VALUE, 0)),
+        ArchiveSplitter.spans(keyframes(), decodingOrder(), FRAMES, 1));
+  }
+
+  private static List<Long> keyframes() {
+    var keyframes = new ArrayList<Long>();
+    for (int frame = FRAMES - GROUP; frame >= 0; frame -= GROUP) {
+      keyframes.add(frame * FRAME_MICROS);
+    }
+    return keyframes;
+  }
+
+  /**
+   * Open groups of pictures: every odd frame is stored after the even frame that follows it, so
+   * that the last frame of a group comes after the keyframe of the next one.
+   */
+  private static long[] decodingOrder() {
+    var timestamps = new long[FRAMES];
+    for (int frame = 1; frame < FRAMES; frame += 2) {
+      timestamps[frame] = (frame + 1 < FRAMES ? frame + 1 : frame) * FRAME_MICROS;
+      if (frame + 1 < FRAMES) {
+        timestamps[frame + 1] = frame * FRAME_MICROS;
+      }
+    }
+    return timestamps;
+  }
+}
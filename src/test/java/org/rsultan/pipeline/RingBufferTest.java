@@ -0,0 +1,98 @@
+package org.rsultan.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+class RingBufferTest {
+
+  private final List<Integer> discarded = new ArrayList<>();
+
+  @Test
+  void dropOldestEvictsTheHead() throws InterruptedException {
+    var buffer = new RingBuffer<Integer>(2, DropPolicy.DROP_OLDEST, discarded::add);
+    for (int i = 1; i <= 4; i++) {
+      assertTrue(buffer.offer(i));
+    }
+    assertEquals(List.of(1, 2), discarded);
+    assertEquals(2, buffer.dropped());
+    assertEquals(Optional.of(3), buffer.take());
+    assertEquals(Optional.of(4), buffer.take());
+  }
+
+  @Test
+  void dropNewestKeepsWhatIsQueued() throws InterruptedException {
+    var buffer = new RingBuffer<Integer>(2, DropPolicy.DROP_NEWEST, discarded::add);
+    for (int i = 1; i <= 4; i++) {
+      assertTrue(buffer.offer(i));
+    }
+    assertEquals(List.of(3, 4), discarded);
+    assertEquals(2, buffer.dropped());
+    assertEquals(Optional.of(1), buffer.take());
+    assertEquals(Optional.of(2), buffer.take());
+  }
+
+  @Test
+  void blockWaitsForAFreeSlot() throws Exception {
+    var buffer = new RingBuffer<Integer>(1, DropPolicy.BLOCK, discarded::add);
+    buffer.offer(1);
+    var blocked = CompletableFuture.runAsync(() -> {
+      try {
+        buffer.offer(2);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    try {
+      blocked.get(100, TimeUnit.MILLISECONDS);
+      throw new AssertionError("The offer should wait while the buffer is full");
+    } catch (TimeoutException expected) {
+      // Still waiting
+    }
+    assertEquals(Optional.of(1), buffer.take());
+    blocked.get(1, TimeUnit.SECONDS);
+    assertEquals(Optional.of(2), buffer.take());
+    assertEquals(0, buffer.dropped());
+    assertTrue(discarded.isEmpty());
+  }
+
+  @Test
+  void closedBufferDrainsThenEnds() throws InterruptedException {
+    var buffer = new RingBuffer<Integer>(4, DropPolicy.BLOCK, discarded::add);
+    buffer.offer(1);
+    buffer.close();
+    assertFalse(buffer.offer(2));
+    assertEquals(List.of(2), discarded);
+    assertEquals(Optional.of(1), buffer.take());
+    assertEquals(Optional.empty(), buffer.take());
+  }
+
+  @Test
+  void clearDiscardsEverythingQueued() throws InterruptedException {
+    var buffer = new RingBuffer<Integer>(4, DropPolicy.BLOCK, discarded::add);
+    for (int i = 1; i <= 3; i++) {
+      buffer.offer(i);
+    }
+    buffer.clear();
+    assertEquals(List.of(1, 2, 3), discarded);
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  void wrapsAroundItsCapacity() throws InterruptedException {
+    var buffer = new RingBuffer<Integer>(3, DropPolicy.BLOCK);
+    for (int i = 0; i < 10; i++) {
+      buffer.offer(i);
+      assertEquals(Optional.of(i), buffer.take());
+    }
+    assertEquals(0, buffer.size());
+  }
+}
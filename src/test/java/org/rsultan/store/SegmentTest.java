@@ -0,0 +1,105 @@
+package org.rsultan.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rsultan.yolo.result.DetectionResult;
+
+class SegmentTest {
+
+  private static final List<String> CLASSES = List.of("person", "car", "dog", "bicycle");
+  private static final List<String> STREAMS = List.of("door", "parking");
+
+  @TempDir
+  Path directory;
+
+  private final Random random = new Random(5);
+
+  @Test
+  void findsWhatAFullScanFinds() {
+    var rows = new Rows();
+    // Out of order and with equal times, as several streams write at once
+    for (int i = 0; i < 5000; i++) {
+      rows.add(detection(random.nextInt(1000)));
+    }
+    var sorted = rows.sortedByTime();
+    var segment = Segment.write(directory.resolve("0" + Segment.EXTENSION), sorted);
+    assertEquals(5000, segment.rows());
+    assertEquals(sorted.minTime, segment.minTime());
+
+    for (int i = 0; i < 300; i++) {
+      long from = random.nextInt(1100) - 50;
+      var query = new DetectionQuery(from, from + random.nextInt(400),
+          random.nextBoolean() ? null : CLASSES.get(random.nextInt(CLASSES.size())),
+          random.nextBoolean() ? null : STREAMS.get(random.nextInt(STREAMS.size())),
+          random.nextBoolean() ? 0 : random.nextFloat());
+      assertEquals(scan(sorted, query), results(segment, query), query.toString());
+    }
+  }
+
+  @Test
+  void readsBackEveryColumn() {
+    var rows = new Rows();
+    var written = new StoredDetection("door", 42, 7, "dog", 3, 0.75f, 10, 20, 30, 40);
+    rows.add(written);
+    var segment = Segment.write(directory.resolve("0" + Segment.EXTENSION), rows.sortedByTime());
+
+    var reopened = Segment.open(segment.path());
+    assertEquals(List.of(written), results(reopened, new DetectionQuery(42, 43, "dog", "door",
+        0.75f)));
+    assertTrue(results(reopened, new DetectionQuery(0, 42, null, null, 0)).isEmpty());
+    assertTrue(results(reopened, new DetectionQuery(0, 100, "cat", null, 0)).isEmpty());
+  }
+
+  @Test
+  void storeQueriesSurviveAReopening() {
+    var query = new DetectionQuery(0, Long.MAX_VALUE, "car", null, 0);
+    var rows = new Rows();
+    try (var store = DetectionStore.open(directory)) {
+      for (int frame = 0; frame < 200; frame++) {
+        var detection = detection(frame);
+        store.writeRecorded(detection.stream(), frame, frame, frame,
+            List.of(new DetectionResult(0, detection.className(), null, detection.confidence(),
+                detection.x(), detection.y(), detection.width(), detection.height())));
+        rows.add(new StoredDetection(detection.stream(), frame, frame, detection.className(),
+            -1, detection.confidence(), detection.x(), detection.y(), detection.width(),
+            detection.height()));
+      }
+      assertEquals(scan(rows, query), store.query(query));
+    }
+    try (var store = DetectionStore.readOnly(directory)) {
+      assertEquals(scan(rows, query), store.query(query));
+    }
+  }
+
+  private StoredDetection detection(long time) {
+    return new StoredDetection(STREAMS.get(random.nextInt(STREAMS.size())), time,
+        random.nextInt(100_000), CLASSES.get(random.nextInt(CLASSES.size())),
+        random.nextInt(50), random.nextFloat(), random.nextInt(1920), random.nextInt(1080),
+        random.nextInt(200), random.nextInt(200));
+  }
+
+  private static List<StoredDetection> results(Segment segment, DetectionQuery query) {
+    var results = new ArrayList<StoredDetection>();
+    segment.query(query, results::add);
+    return results;
+  }
+
+  private static List<StoredDetection> scan(Rows rows, DetectionQuery query) {
+    var results = new ArrayList<StoredDetection>();
+    for (int row = 0; row < rows.size; row++) {
+      var detection = rows.get(row);
+      if (query.matches(detection.time(), detection.className(), detection.stream(),
+          detection.confidence())) {
+        results.add(detection);
+      }
+    }
+    return results;
+  }
+}
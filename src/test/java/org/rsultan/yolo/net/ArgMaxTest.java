@@ -0,0 +1,85 @@
+package org.rsultan.yolo.net;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ArgMaxTest {
+
+  private final Random random = new Random(42);
+
+  @Test
+  void findsTheSameIndexAsAScalarScan() {
+    for (int length = 0; length < 200; length++) {
+      var values = new float[length + 7];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = random.nextFloat() * 2 - 1;
+      }
+      for (int from : new int[]{0, 3, 5}) {
+        int to = Math.min(values.length, from + length);
+        assertEquals(scalarArgMax(values, from, to), ArgMax.argMax(values, from, to),
+            "range " + from + ".." + to);
+      }
+    }
+  }
+
+  @Test
+  void keepsTheFirstOfEqualMaximums() {
+    var values = new float[67];
+    Arrays.fill(values, 0.25f);
+    values[40] = 0.5f;
+    values[19] = 0.5f;
+    values[66] = 0.5f;
+    assertEquals(19, ArgMax.argMax(values, 5, values.length));
+    assertEquals(40, ArgMax.argMax(values, 20, values.length));
+  }
+
+  @Test
+  void emptyRangeHasNoMaximum() {
+    assertEquals(-1, ArgMax.argMax(new float[8], 5, 5));
+  }
+
+  @Test
+  void foldsClassRowsLikeAScalarLoop() {
+    int classes = 7;
+    for (int length : new int[]{1, 15, 16, 17, 100, 8400}) {
+      var best = new float[length];
+      var bestClasses = new int[length];
+      var expected = new float[length];
+      var expectedClasses = new int[length];
+      Arrays.fill(best, Float.NEGATIVE_INFINITY);
+      Arrays.fill(expected, Float.NEGATIVE_INFINITY);
+      Arrays.fill(bestClasses, -1);
+      Arrays.fill(expectedClasses, -1);
+      var scores = new float[length];
+      for (int classId = 0; classId < classes; classId++) {
+        for (int i = 0; i < length; i++) {
+          // Few distinct values so that ties happen
+          scores[i] = random.nextInt(5) / 4f;
+          if (scores[i] > expected[i]) {
+            expected[i] = scores[i];
+            expectedClasses[i] = classId;
+          }
+        }
+        ArgMax.columnMax(scores, classId, best, bestClasses, length);
+      }
+      assertArrayEquals(expected, best, "length " + length);
+      assertArrayEquals(expectedClasses, bestClasses, "length " + length);
+    }
+  }
+
+  private static int scalarArgMax(float[] values, int from, int to) {
+    int index = -1;
+    float max = Float.NEGATIVE_INFINITY;
+    for (int i = from; i < to; i++) {
+      if (index < 0 || values[i] > max) {
+        max = values[i];
+        index = i;
+      }
+    }
+    return index;
+  }
+}
@@ -0,0 +1,48 @@
+package org.rsultan.yolo.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class LetterboxTest {
+
+  @Test
+  void fitsAWideFrameBetweenHorizontalBands() {
+    var letterbox = Letterbox.fit(1280, 720, 416, 416);
+    assertEquals(0.325f, letterbox.scaleX());
+    assertEquals(0.325f, letterbox.scaleY());
+    assertEquals(0, letterbox.padX());
+    // 720 * 0.325 = 234 rows of frame in 416
+    assertEquals(91, letterbox.padY());
+  }
+
+  @Test
+  void fitsATallFrameBetweenVerticalBands() {
+    var letterbox = Letterbox.fit(480, 640, 320, 320);
+    assertEquals(40, letterbox.padX());
+    assertEquals(0, letterbox.padY());
+  }
+
+  @Test
+  void mapsInputBoxesBackOntoTheFrame() {
+    var letterbox = Letterbox.fit(1280, 720, 416, 416);
+    // The frame corners, relative to the input
+    assertEquals(0, letterbox.frameX(0), 1e-3f);
+    assertEquals(0, letterbox.frameY(91 / 416f), 1e-3f);
+    assertEquals(1280, letterbox.frameX(1), 1e-3f);
+    assertEquals(720, letterbox.frameY((91 + 234) / 416f), 1e-3f);
+    assertEquals(640, letterbox.frameWidth(0.5f), 1e-3f);
+    assertEquals(360, letterbox.frameHeight(117 / 416f), 1e-3f);
+  }
+
+  @Test
+  void stretchScalesEachAxisOnItsOwn() {
+    var letterbox = Letterbox.stretch(1280, 720, 640, 640);
+    assertEquals(0, letterbox.padX());
+    assertEquals(0, letterbox.padY());
+    assertEquals(640, letterbox.frameX(0.5f), 1e-3f);
+    assertEquals(360, letterbox.frameY(0.5f), 1e-3f);
+    assertEquals(1280, letterbox.frameWidth(1), 1e-3f);
+    assertEquals(720, letterbox.frameHeight(1), 1e-3f);
+  }
+}
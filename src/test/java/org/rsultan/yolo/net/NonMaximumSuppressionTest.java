@@ -0,0 +1,151 @@
+package org.rsultan.yolo.net;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.rsultan.yolo.net.config.NmsConfig;
+
+class NonMaximumSuppressionTest {
+
+  private static final float THRESHOLD = 0.45f;
+  private static final float SCORE_THRESHOLD = 0.25f;
+
+  @Test
+  void keepsTheBestOfOverlappingBoxes() {
+    var candidates = new Candidates();
+    candidates.add(0, 0.6f, 10, 10, 100, 100);
+    candidates.add(0, 0.9f, 12, 12, 100, 100);
+    candidates.add(0, 0.7f, 300, 300, 50, 50);
+    suppress(hard(true, 0), candidates);
+    assertArrayEquals(new int[]{1, 2}, kept(candidates));
+  }
+
+  @Test
+  void keepsBoxesOverlappingUnderTheThreshold() {
+    var candidates = new Candidates();
+    candidates.add(0, 0.9f, 0, 0, 100, 100);
+    // Intersection over union of 50 / 150
+    candidates.add(0, 0.8f, 50, 0, 100, 100);
+    suppress(hard(true, 0), candidates);
+    assertArrayEquals(new int[]{0, 1}, kept(candidates));
+  }
+
+  @Test
+  void classAwareSuppressionKeepsOtherClasses() {
+    var candidates = new Candidates();
+    candidates.add(0, 0.9f, 10, 10, 100, 100);
+    candidates.add(1, 0.8f, 10, 10, 100, 100);
+    suppress(hard(true, 0), candidates);
+    assertArrayEquals(new int[]{0, 1}, kept(candidates));
+
+    candidates.keptCount = 0;
+    suppress(hard(false, 0), candidates);
+    assertArrayEquals(new int[]{0}, kept(candidates));
+  }
+
+  @Test
+  void topKOnlyConsidersTheBestScores() {
+    var candidates = new Candidates();
+    for (int i = 0; i < 10; i++) {
+      candidates.add(0, 0.3f + i / 20f, 200 * i, 0, 100, 100);
+    }
+    suppress(hard(true, 3), candidates);
+    assertArrayEquals(new int[]{9, 8, 7}, kept(candidates));
+  }
+
+  @Test
+  void gridSuppressionKeepsWhatAGreedyScanKeeps() {
+    var random = new Random(3);
+    for (int run = 0; run < 20; run++) {
+      var candidates = new Candidates();
+      // Clusters of jittered boxes, as a net reports around each object
+      for (int object = 0; object < 60; object++) {
+        int left = random.nextInt(1800);
+        int top = random.nextInt(1000);
+        int width = 20 + random.nextInt(120);
+        int height = 20 + random.nextInt(120);
+        for (int box = 0; box < 6; box++) {
+          candidates.add(random.nextInt(3), 0.3f + 0.7f * random.nextFloat(),
+              left + random.nextInt(11) - 5, top + random.nextInt(11) - 5,
+              width + random.nextInt(11) - 5, height + random.nextInt(11) - 5);
+        }
+      }
+      var expected = greedy(candidates);
+      suppress(hard(true, 0), candidates);
+      assertArrayEquals(expected, kept(candidates), "run " + run);
+    }
+  }
+
+  @Test
+  void softSuppressionDecaysOverlappingScores() {
+    var config = new NmsConfig(THRESHOLD, true, 0, true, 0.5f);
+    var candidates = new Candidates();
+    candidates.add(0, 0.9f, 0, 0, 100, 100);
+    candidates.add(0, 0.8f, 50, 0, 100, 100);
+    candidates.add(0, 0.3f, 0, 0, 100, 100);
+    suppress(config, candidates);
+
+    float iou = NonMaximumSuppression.intersectionOverUnion(candidates, 0, 1);
+    assertArrayEquals(new int[]{0, 1}, kept(candidates));
+    assertEquals(0.9f, candidates.scores[0]);
+    assertEquals(0.8f * (float) Math.exp(-(iou * iou) / 0.5f), candidates.scores[1], 1e-6f);
+  }
+
+  /**
+   * A box cut by a tile border overlaps little with the whole box from the next tile, only its
+   * own area tells them apart.
+   */
+  @Test
+  void boxesFromDifferentTilesAreMeasuredOverTheSmallerOne() {
+    var candidates = new Candidates();
+    candidates.add(0, 0.9f, 0, 0, 100, 200);
+    candidates.add(0, 0.8f, 60, 0, 50, 200);
+    var nms = new NonMaximumSuppression(hard(true, 0), SCORE_THRESHOLD);
+
+    nms.suppress(candidates, new int[]{0, 1});
+    assertArrayEquals(new int[]{0}, kept(candidates));
+    nms.suppress(candidates, new int[]{1, 1});
+    assertArrayEquals(new int[]{0, 1}, kept(candidates));
+    // The whole frame overlaps every tile, its boxes keep the usual measure
+    nms.suppress(candidates, new int[]{-1, 1});
+    assertArrayEquals(new int[]{0, 1}, kept(candidates));
+    nms.suppress(candidates, null);
+    assertArrayEquals(new int[]{0, 1}, kept(candidates));
+  }
+
+  private static NmsConfig hard(boolean classAware, int topK) {
+    return new NmsConfig(THRESHOLD, classAware, topK, false, 0.5f);
+  }
+
+  private static void suppress(NmsConfig config, Candidates candidates) {
+    new NonMaximumSuppression(config, SCORE_THRESHOLD).suppress(candidates);
+  }
+
+  private static int[] kept(Candidates candidates) {
+    return Arrays.copyOf(candidates.kept, candidates.keptCount);
+  }
+
+  /**
+   * Class-aware suppression comparing every candidate with every kept box.
+   */
+  private static int[] greedy(Candidates candidates) {
+    var order = Arrays.copyOf(candidates.sortByScore(), candidates.size);
+    var kept = new int[candidates.size];
+    int count = 0;
+    for (int candidate : order) {
+      boolean keep = true;
+      for (int k = 0; k < count && keep; k++) {
+        keep = candidates.classIds[kept[k]] != candidates.classIds[candidate]
+            || NonMaximumSuppression.intersectionOverUnion(candidates, kept[k], candidate)
+            <= THRESHOLD;
+      }
+      if (keep) {
+        kept[count++] = candidate;
+      }
+    }
+    return Arrays.copyOf(kept, count);
+  }
+}
@@ -0,0 +1,97 @@
+package org.rsultan.yolo.net;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_32F;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.junit.jupiter.api.Test;
+import org.rsultan.yolo.net.config.NmsConfig;
+import org.rsultan.yolo.net.config.OutputLayout;
+import org.rsultan.yolo.result.DetectionResult;
+
+class ResultExtractorTest {
+
+  private static final List<String> NAMES = List.of("person", "bicycle", "car", "dog", "cat");
+  private static final NmsConfig NMS = new NmsConfig(0.45f, true, 0, false, 0.5f);
+  private static final Letterbox LETTERBOX = Letterbox.fit(1280, 720, 416, 416);
+  private static final int[] YOLOV3_HEAD_ROWS = {507, 2028, 8112};
+
+  @Test
+  void everyDecodeModeFindsTheSameDetections() {
+    var heads = heads(new Random(7), YOLOV3_HEAD_ROWS);
+    var expected = boxes(DecodeMode.SCALAR, heads);
+    assertFalse(expected.isEmpty());
+    assertEquals(expected, boxes(DecodeMode.VECTOR, heads));
+    assertEquals(expected, boxes(DecodeMode.PARALLEL, heads));
+  }
+
+  /**
+   * The per-head candidates are created on the first frame of an extractor, every head must
+   * still be merged.
+   */
+  @Test
+  void parallelDecodeKeepsEveryHeadFromTheFirstFrame() {
+    var random = new Random(11);
+    var rows = new int[16];
+    Arrays.fill(rows, 64);
+    for (int run = 0; run < 500; run++) {
+      var heads = heads(random, rows);
+      assertEquals(boxes(DecodeMode.SCALAR, heads), boxes(DecodeMode.PARALLEL, heads),
+          "run " + run);
+    }
+  }
+
+  /**
+   * @return the detections of a new extractor as comparable strings, colors left aside
+   */
+  private static List<String> boxes(DecodeMode mode, List<float[]> heads) {
+    var extractor = new ResultExtractor(0.4f, NMS, NAMES, mode, OutputLayout.DARKNET);
+    int cols = NAMES.size() + 5;
+    var outs = new MatVector();
+    for (float[] head : heads) {
+      var mat = new Mat(head.length / cols, cols, CV_32F);
+      new FloatPointer(mat.data()).put(head);
+      outs.push_back(mat);
+    }
+    return extractor.getDetectionResults(LETTERBOX, outs).stream()
+        .map(ResultExtractorTest::describe)
+        .toList();
+  }
+
+  private static String describe(DetectionResult result) {
+    return result.className() + " " + result.confidence() + " " + result.x() + "," + result.y()
+        + " " + result.width() + "x" + result.height();
+  }
+
+  /**
+   * Darknet rows: box center and size relative to the input, objectness, then class scores
+   * already scaled by the objectness. Most rows hold nothing.
+   */
+  private static List<float[]> heads(Random random, int[] headRows) {
+    int cols = NAMES.size() + 5;
+    return IntStream.of(headRows).mapToObj(rows -> {
+      var data = new float[rows * cols];
+      for (int row = 0; row < rows; row++) {
+        int offset = row * cols;
+        float objectness = random.nextInt(20) == 0 ? 0.5f + random.nextFloat() / 2
+            : random.nextFloat() / 4;
+        data[offset] = random.nextFloat();
+        data[offset + 1] = random.nextFloat();
+        data[offset + 2] = 0.02f + random.nextFloat() / 5;
+        data[offset + 3] = 0.02f + random.nextFloat() / 5;
+        data[offset + 4] = objectness;
+        for (int k = 5; k < cols; k++) {
+          data[offset + k] = objectness * random.nextFloat();
+        }
+      }
+      return data;
+    }).toList();
+  }
+}
@@ -0,0 +1,68 @@
+package org.rsultan.yolo.track;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.rsultan.yolo.net.InferenceScheduler.Detections;
+import org.rsultan.yolo.result.DetectionResult;
+
+class TrackerTest {
+
+  private final Tracker tracker = new Tracker(new TrackerConfig(0.3f, 2));
+  private long sequence;
+
+  @Test
+  void keepsTheIdentifierOfAMovingObject() {
+    for (int frame = 0; frame < 20; frame++) {
+      var results = infer(person(100 + 10 * frame));
+      assertEquals(1, results.size());
+      var result = results.get(0);
+      assertEquals(0, result.trackId());
+      assertFalse(result.predicted());
+      assertEquals(100 + 10 * frame, result.x());
+    }
+  }
+
+  @Test
+  void movesTheBoxAheadBetweenInferences() {
+    for (int frame = 0; frame < 20; frame++) {
+      infer(person(100 + 10 * frame));
+    }
+    var last = tracker.track(new Detections(sequence, List.of()));
+    var result = last.get(0);
+    assertTrue(result.predicted());
+    assertEquals(0, result.trackId());
+    // The detection was at 290, the velocity is about 10 pixels per frame
+    assertEquals(300, result.x(), 2);
+    assertEquals(200, result.y(), 2);
+  }
+
+  @Test
+  void startsANewTrackForAnotherClass() {
+    infer(person(100));
+    var results = infer(new DetectionResult(1, "car", null, 0.9f, 100, 200, 80, 160));
+    assertEquals(List.of(0, 1), results.stream().map(DetectionResult::trackId).toList());
+    assertTrue(results.get(0).predicted());
+    assertFalse(results.get(1).predicted());
+  }
+
+  @Test
+  void dropsTracksMissedTooManyTimes() {
+    infer(person(100));
+    assertEquals(1, infer().size());
+    assertEquals(1, infer().size());
+    assertEquals(0, infer().size());
+    assertEquals(1, infer(person(100)).get(0).trackId());
+  }
+
+  private List<DetectionResult> infer(DetectionResult... detections) {
+    return tracker.track(new Detections(++sequence, List.of(detections)));
+  }
+
+  private static DetectionResult person(int x) {
+    return new DetectionResult(0, "person", null, 0.9f, x, 200, 80, 160);
+  }
+}